@@ -2,8 +2,10 @@ package com.uncal.bpm_backend.config;
 
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
 import org.springframework.scheduling.TaskScheduler;
 import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
 
 @Configuration
@@ -19,4 +21,39 @@ public class SchedulerConfig {
         scheduler.setAwaitTerminationSeconds(30);
         return scheduler;
     }
+    
+    // Virtual thread per run scenario (bpm.engine.execution-mode=virtual); batas paralel diatur ScenarioRunDispatcher
+    @Bean
+    public SimpleAsyncTaskExecutor scenarioRunExecutor() {
+        SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("scenario-run-");
+        executor.setVirtualThreads(true);
+        executor.setTaskTerminationTimeout(30_000);
+        return executor;
+    }
+    
+    // Worker pool untuk transfer batch File Receiver (paralelisme per eksekusi diatur di config Sender)
+    @Bean
+    public ThreadPoolTaskExecutor fileTransferExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(8);
+        executor.setMaxPoolSize(8);
+        executor.setQueueCapacity(1000);
+        executor.setThreadNamePrefix("file-transfer-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        return executor;
+    }
+    
+    // Worker kecil untuk antrian post-processing file sumber (remove/rename/move)
+    @Bean
+    public ThreadPoolTaskExecutor sourceActionExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(2);
+        executor.setMaxPoolSize(2);
+        executor.setQueueCapacity(10000);
+        executor.setThreadNamePrefix("source-action-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        return executor;
+    }
 }
\ No newline at end of file
@@ -20,6 +20,9 @@ public class ExecutionLogResponse {
     private String sourceFile;
     private String destinationFile;
     private Integer recordsProcessed;
+    private Double rowsPerSecond;
+    private String checksumAlgorithm;
+    private String checksum;
     private String errorMessage;
     private String scenarioFileName;
     
@@ -35,6 +38,9 @@ public class ExecutionLogResponse {
         response.setSourceFile(log.getSourceFile());
         response.setDestinationFile(log.getDestinationFile());
         response.setRecordsProcessed(log.getRecordsProcessed());
+        response.setRowsPerSecond(log.getRowsPerSecond());
+        response.setChecksumAlgorithm(log.getChecksumAlgorithm());
+        response.setChecksum(log.getChecksum());
         response.setErrorMessage(log.getErrorMessage());
         
         // Handle lazy loading issue - wrap in try-catch
@@ -36,6 +36,10 @@ public class Component {
     @Column(nullable = false, length = 50)
     private String type; // Kategori (e.g., "Sender", "Receiver")
 
+    // Handler eksekusi yang dipakai engine (e.g., "jdbc-sender", "file-receiver", "compression")
+    @Column(length = 50)
+    private String subtype;
+
     // Menggunakan TEXT untuk Base64 Icon yang panjang
     @Column(columnDefinition = "TEXT")
     private String icon;
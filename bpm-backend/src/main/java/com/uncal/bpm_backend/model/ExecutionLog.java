@@ -57,6 +57,19 @@ public class ExecutionLog {
     @Column(name = "records_processed")
     private Integer recordsProcessed;
 
+    @Column(name = "rows_per_second")
+    private Double rowsPerSecond;
+
+    @Column(name = "checksum_algorithm", length = 20)
+    private String checksumAlgorithm;
+
+    @Column(name = "checksum", length = 64)
+    private String checksum;
+
+    // Batch: satu baris "checksum  namaFile" per file yang terkirim
+    @Column(name = "batch_checksums", columnDefinition = "TEXT")
+    private String batchChecksums;
+
     @Column(name = "error_message", columnDefinition = "TEXT")
     private String errorMessage;
 
@@ -0,0 +1,50 @@
+package com.uncal.bpm_backend.model;
+
+import java.time.LocalDateTime;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * High-watermark JDBC Sender mode incremental, per scenario dan component.
+ * Nilai disimpan sebagai teks beserta tipenya supaya bisa di-bind kembali ke query dengan tipe yang benar.
+ */
+@Entity
+@Table(name = "jdbc_watermarks", indexes = {
+        @Index(name = "idx_jdbc_watermarks_component", columnList = "scenario_id, component_key", unique = true)
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class JdbcWatermark {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "scenario_id", nullable = false)
+    private Long scenarioId;
+
+    @Column(name = "component_key", nullable = false, length = 255)
+    private String componentKey;
+
+    @Column(name = "watermark_column", nullable = false, length = 255)
+    private String watermarkColumn;
+
+    @Column(name = "watermark_value", length = 255)
+    private String watermarkValue;
+
+    @Column(name = "value_type", length = 20)
+    private String valueType; // 'NUMBER', 'TIMESTAMP', 'TIMESTAMPTZ', 'DATE', 'STRING'
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt = LocalDateTime.now();
+}
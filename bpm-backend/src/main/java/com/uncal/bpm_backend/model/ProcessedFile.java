@@ -0,0 +1,57 @@
+package com.uncal.bpm_backend.model;
+
+import java.time.LocalDateTime;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Ledger file yang sudah berhasil dikirim oleh File Sender.
+ * Fingerprint = SHA-256 dari path, ukuran dan waktu modifikasi file,
+ * sehingga pengecekan tetap O(1) lewat unique index walau ada jutaan baris.
+ * Scope = SHA-256 dari direktori sumber; dedup berdasarkan content hash hanya berlaku dalam scope yang sama.
+ */
+@Entity
+@Table(name = "processed_files", indexes = {
+        @Index(name = "idx_processed_files_fingerprint", columnList = "fingerprint", unique = true),
+        @Index(name = "idx_processed_files_content_hash", columnList = "content_hash, scope"),
+        @Index(name = "idx_processed_files_processed_at", columnList = "processed_at")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProcessedFile {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "fingerprint", nullable = false, length = 64)
+    private String fingerprint;
+
+    @Column(name = "file_path", length = 1000)
+    private String filePath;
+
+    @Column(name = "file_size")
+    private Long fileSize;
+
+    @Column(name = "last_modified")
+    private Long lastModified;
+
+    @Column(name = "content_hash", length = 64)
+    private String contentHash;
+
+    @Column(name = "scope", length = 64)
+    private String scope;
+
+    @Column(name = "processed_at")
+    private LocalDateTime processedAt = LocalDateTime.now();
+}
@@ -0,0 +1,70 @@
+package com.uncal.bpm_backend.model;
+
+import java.time.LocalDateTime;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Antrian persisten untuk post-processing file sumber (remove/rename/move) setelah file berhasil dikirim.
+ * Entry tetap ada sampai action berhasil, sehingga antrian tidak hilang saat aplikasi restart.
+ */
+@Entity
+@Table(name = "source_file_actions", indexes = {
+        @Index(name = "idx_source_file_actions_due", columnList = "status, next_attempt_at")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SourceFileAction {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "source_path", nullable = false, length = 1000)
+    private String sourcePath;
+
+    @Column(name = "original_file_name", length = 500)
+    private String originalFileName;
+
+    @Column(name = "action", nullable = false, length = 20)
+    private String action; // 'remove', 'rename', 'move'
+
+    @Column(name = "rename_to", length = 500)
+    private String renameTo;
+
+    @Column(name = "move_to", length = 1000)
+    private String moveTo;
+
+    @Column(name = "source_directory", length = 1000)
+    private String sourceDirectory;
+
+    // Fingerprint ledger file saat dikirim; action dilewati jika file sumber sudah berubah
+    @Column(name = "source_fingerprint", length = 64)
+    private String sourceFingerprint;
+
+    @Column(name = "status", nullable = false, length = 20)
+    private String status = "PENDING"; // 'PENDING', 'RUNNING', 'FAILED', 'SKIPPED'
+
+    @Column(name = "attempts")
+    private Integer attempts = 0;
+
+    // Untuk status RUNNING: batas lease claim worker
+    @Column(name = "next_attempt_at")
+    private LocalDateTime nextAttemptAt = LocalDateTime.now();
+
+    @Column(name = "last_error", length = 1000)
+    private String lastError;
+
+    @Column(name = "created_at")
+    private LocalDateTime createdAt = LocalDateTime.now();
+}
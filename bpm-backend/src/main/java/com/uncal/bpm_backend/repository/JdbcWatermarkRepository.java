@@ -0,0 +1,14 @@
+package com.uncal.bpm_backend.repository;
+
+import java.util.Optional;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import com.uncal.bpm_backend.model.JdbcWatermark;
+
+@Repository
+public interface JdbcWatermarkRepository extends JpaRepository<JdbcWatermark, Long> {
+
+    Optional<JdbcWatermark> findByScenarioIdAndComponentKey(Long scenarioId, String componentKey);
+}
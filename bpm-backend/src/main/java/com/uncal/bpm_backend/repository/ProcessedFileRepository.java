@@ -0,0 +1,20 @@
+package com.uncal.bpm_backend.repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import com.uncal.bpm_backend.model.ProcessedFile;
+
+@Repository
+public interface ProcessedFileRepository extends JpaRepository<ProcessedFile, Long> {
+
+    boolean existsByFingerprint(String fingerprint);
+
+    boolean existsByContentHashAndScope(String contentHash, String scope);
+
+    // Keyset per id, supaya purge bisa berjalan per halaman tanpa OFFSET besar
+    List<ProcessedFile> findTop500ByProcessedAtBeforeAndIdGreaterThanOrderByIdAsc(LocalDateTime cutoff, Long id);
+}
@@ -0,0 +1,30 @@
+package com.uncal.bpm_backend.repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.uncal.bpm_backend.model.SourceFileAction;
+
+@Repository
+public interface SourceFileActionRepository extends JpaRepository<SourceFileAction, Long> {
+
+    // RUNNING dengan lease yang sudah lewat = worker mati/restart di tengah action
+    @Query("SELECT a FROM SourceFileAction a WHERE a.status IN ('PENDING', 'RUNNING') AND a.nextAttemptAt <= ?1 ORDER BY a.nextAttemptAt")
+    List<SourceFileAction> findDue(LocalDateTime now, Pageable pageable);
+
+    // Claim atomik: hanya satu worker (juga lintas instance) yang mendapat 1 baris ter-update
+    @Transactional
+    @Modifying
+    @Query("UPDATE SourceFileAction a SET a.status = 'RUNNING', a.nextAttemptAt = ?3 " +
+           "WHERE a.id = ?1 AND a.status IN ('PENDING', 'RUNNING') AND a.nextAttemptAt <= ?2")
+    int claim(Long id, LocalDateTime now, LocalDateTime leaseUntil);
+
+    long countByStatus(String status);
+}
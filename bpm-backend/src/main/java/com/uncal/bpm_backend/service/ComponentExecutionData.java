@@ -8,7 +8,11 @@ import org.json.JSONObject;
 @Builder
 public class ComponentExecutionData {
     private String type;
+    // Subtype dari palette Component, kunci registry handler; kosong untuk canvas lama
+    private String subtype;
     private String label;
     private JSONObject configData;
     private JSONObject rawComponentJson;
+    // Config yang sudah di-parse handler (lihat ComponentHandler.compileConfig), null jika tidak ada
+    private Object compiledConfig;
 }
\ No newline at end of file
@@ -1,39 +1,70 @@
 package com.uncal.bpm_backend.service;
 
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.TaskScheduler;
 import org.springframework.stereotype.Service;
 
+import java.time.Instant;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
 
 @Service
 @Slf4j
 public class ComponentExecutorService {
 
     private final Map<String, ComponentHandler> componentHandlers;
+    // Registry utama: subtype palette Component -> handler
+    private final Map<String, ComponentHandler> handlersBySubtype;
+    // Fallback per type, handler pertama yang terdaftar untuk type tersebut
+    private final Map<String, ComponentHandler> handlersByType;
+    // Retry dijadwalkan sebagai continuation tertunda, bukan Thread.sleep di thread scheduler
+    private final TaskScheduler taskScheduler;
+    // Attempt retry dilanjutkan di virtual thread jika engine berjalan di mode virtual
+    private final ScenarioRunDispatcher runDispatcher;
+    
+    private static final int DEFAULT_MAX_RETRY_INTERVAL = 300;
 
-    public ComponentExecutorService(List<ComponentHandler> handlers) {
+    public ComponentExecutorService(List<ComponentHandler> handlers, TaskScheduler taskScheduler,
+                                    ScenarioRunDispatcher runDispatcher) {
+        this.taskScheduler = taskScheduler;
+        this.runDispatcher = runDispatcher;
         this.componentHandlers = new HashMap<>();
+        this.handlersBySubtype = new HashMap<>();
+        this.handlersByType = new HashMap<>();
         
         // ✅ SMART REGISTRATION: Gunakan class name sebagai key untuk avoid conflict
         for (ComponentHandler handler : handlers) {
             String handlerKey = handler.getClass().getSimpleName();
             componentHandlers.put(handlerKey, handler);
-            log.info("✅ Registered handler: {} -> {}", handlerKey, handler.getComponentType());
+            handlersByType.putIfAbsent(handler.getComponentType(), handler);
+            
+            ComponentHandler duplicate = handlersBySubtype.put(handler.getComponentSubtype(), handler);
+            if (duplicate != null) {
+                throw new IllegalStateException("Duplicate component subtype '" + handler.getComponentSubtype()
+                        + "' for " + handlerKey + " and " + duplicate.getClass().getSimpleName());
+            }
+            log.info("✅ Registered handler: {} -> {} ({})", handlerKey, handler.getComponentType(), 
+                    handler.getComponentSubtype());
         }
         
         log.info("🎯 Total registered handlers: {}", componentHandlers.keySet());
     }
 
     public boolean executeComponent(ComponentExecutionData componentData, ExecutionContext context) {
+        // ✅ SMART ROUTING: Cari handler berdasarkan component label
+        return executeComponent(componentData, resolveHandler(componentData), context);
+    }
+    
+    // Handler yang sudah di-resolve saat plan scenario dikompilasi, tanpa routing ulang per eksekusi
+    public boolean executeComponent(ComponentExecutionData componentData, ComponentHandler handler, 
+                                    ExecutionContext context) {
         String componentType = componentData.getType();
         String componentLabel = componentData.getLabel();
         
         try {
-            // ✅ SMART ROUTING: Cari handler berdasarkan component label
-            ComponentHandler handler = findAppropriateHandler(componentLabel, componentType);
-            
             if (handler == null) {
                 log.error("❌ No handler found for component: {} ({})", componentLabel, componentType);
                 context.put("lastError", "No handler found for component: " + componentLabel);
@@ -71,7 +102,25 @@ public class ComponentExecutorService {
         }
     }
 
-    // ✅ SMART HANDLER SELECTION berdasarkan component label
+    /**
+     * Handler berdasarkan subtype yang dideklarasikan palette Component. Canvas lama tanpa subtype
+     * masih di-route lewat label (jalur migrasi), sampai scenario disimpan ulang.
+     */
+    public ComponentHandler resolveHandler(ComponentExecutionData componentData) {
+        String subtype = componentData.getSubtype();
+        if (subtype != null && !subtype.isEmpty()) {
+            ComponentHandler handler = handlersBySubtype.get(subtype);
+            if (handler == null) {
+                log.error("❌ No handler registered for subtype '{}' ({})", subtype, componentData.getLabel());
+            }
+            return handler;
+        }
+        
+        log.warn("⚠️ Component '{}' has no subtype, routing by label (legacy)", componentData.getLabel());
+        return findAppropriateHandler(componentData.getLabel(), componentData.getType());
+    }
+
+    // ✅ SMART HANDLER SELECTION berdasarkan component label (legacy, untuk canvas tanpa subtype)
     private ComponentHandler findAppropriateHandler(String componentLabel, String componentType) {
         String labelLower = componentLabel.toLowerCase();
         
@@ -98,6 +147,11 @@ public class ComponentExecutorService {
             log.info("🎯 Routing '{}' → FileReceiverHandler", componentLabel);
             return handler;
         }
+        else if (labelLower.contains("compress")) {
+            ComponentHandler handler = componentHandlers.get("CompressionHandler");
+            log.info("🎯 Routing '{}' → CompressionHandler", componentLabel);
+            return handler;
+        }
         
         // Fallback: coba cari berdasarkan type (untuk backward compatibility)
         log.warn("⚠️ No specific handler found for '{}', trying fallback...", componentLabel);
@@ -106,59 +160,100 @@ public class ComponentExecutorService {
     
     // ✅ FALLBACK MECHANISM untuk backward compatibility
     private ComponentHandler findFallbackHandler(String componentType) {
-        // Cari handler pertama yang match dengan type yang diminta
-        for (Map.Entry<String, ComponentHandler> entry : componentHandlers.entrySet()) {
-            if (entry.getValue().getComponentType().equals(componentType)) {
-                log.info("🔄 Fallback routing for type '{}' → {}", componentType, entry.getKey());
-                return entry.getValue();
-            }
+        // Handler pertama yang terdaftar untuk type yang diminta
+        ComponentHandler handler = handlersByType.get(componentType);
+        if (handler != null) {
+            log.info("🔄 Fallback routing for type '{}' → {}", componentType, handler.getClass().getSimpleName());
         }
-        return null;
+        return handler;
     }
 
-    // ✅ PERBAIKAN: Tambah method executeComponentWithRetry untuk retry mechanism
-    public boolean executeComponentWithRetry(ComponentExecutionData componentData, ExecutionContext context) {
-        String componentType = componentData.getType();
-        String componentLabel = componentData.getLabel();
-        
+    /**
+     * Eksekusi component dengan retry. Jeda antar attempt dijadwalkan di TaskScheduler dengan exponential
+     * backoff (retryInterval, 2x, 4x, ... maksimal maxRetryInterval detik) plus jitter, sehingga tidak ada
+     * thread yang tertahan selama menunggu. Future selesai dengan hasil attempt terakhir.
+     */
+    public CompletableFuture<Boolean> executeComponentWithRetry(ComponentExecutionData componentData, 
+                                                                ExecutionContext context) {
+        return executeComponentWithRetry(componentData, resolveHandler(componentData), context);
+    }
+    
+    public CompletableFuture<Boolean> executeComponentWithRetry(ComponentExecutionData componentData, 
+                                                                ComponentHandler handler, ExecutionContext context) {
         // Ambil retry configuration dari config data
         int maxRetries = componentData.getConfigData().optInt("maxRetries", 1);
         int retryInterval = componentData.getConfigData().optInt("retryInterval", 5); // default 5 detik
+        int maxRetryInterval = componentData.getConfigData().optInt("maxRetryInterval", DEFAULT_MAX_RETRY_INTERVAL);
         
         // Jika maxRetries = 1, langsung execute tanpa retry
         if (maxRetries <= 1) {
-            return executeComponent(componentData, context);
+            return CompletableFuture.completedFuture(executeComponent(componentData, handler, context));
         }
         
-        log.info("🔄 Configuring retry mechanism for {}: maxRetries={}, retryInterval={}s", 
-                componentLabel, maxRetries, retryInterval);
+        log.info("🔄 Configuring retry mechanism for {}: maxRetries={}, retryInterval={}s, maxRetryInterval={}s", 
+                componentData.getLabel(), maxRetries, retryInterval, maxRetryInterval);
         
-        for (int attempt = 1; attempt <= maxRetries; attempt++) {
-            log.info("🔄 Attempt {}/{} for {}: {}", attempt, maxRetries, componentType, componentLabel);
-            
-            boolean success = executeComponent(componentData, context);
-            
-            if (success) {
-                log.info("✅ {} succeeded on attempt {}/{}", componentLabel, attempt, maxRetries);
-                return true;
-            }
-            
-            // Jika bukan attempt terakhir, tunggu sebelum retry
-            if (attempt < maxRetries) {
-                log.warn("⚠️ {} failed on attempt {}/{}, retrying in {} seconds...", 
-                        componentLabel, attempt, maxRetries, retryInterval);
-                
-                try {
-                    Thread.sleep(retryInterval * 1000L);
-                } catch (InterruptedException e) {
-                    Thread.currentThread().interrupt();
-                    log.error("❌ Retry interrupted for {}: {}", componentLabel, e.getMessage());
-                    return false;
-                }
-            }
+        CompletableFuture<Boolean> result = new CompletableFuture<>();
+        attemptExecution(componentData, handler, context, 1, maxRetries, retryInterval, maxRetryInterval, result);
+        return result;
+    }
+    
+    private void attemptExecution(ComponentExecutionData componentData, ComponentHandler handler, 
+                                  ExecutionContext context, int attempt, int maxRetries, int retryInterval, 
+                                  int maxRetryInterval, CompletableFuture<Boolean> result) {
+        String componentLabel = componentData.getLabel();
+        if (attempt > 1 && !context.isActive()) {
+            log.info("🛑 Retry of {} cancelled, scenario was stopped", componentLabel);
+            result.complete(false);
+            return;
+        }
+        log.info("🔄 Attempt {}/{} for {}: {}", attempt, maxRetries, componentData.getType(), componentLabel);
+        
+        boolean success = executeComponent(componentData, handler, context);
+        String noRetryReason = context.takeNoRetryReason();
+        
+        if (success) {
+            log.info("✅ {} succeeded on attempt {}/{}", componentLabel, attempt, maxRetries);
+            result.complete(true);
+            return;
         }
         
-        log.error("💥 {} failed after {} attempts", componentLabel, maxRetries);
-        return false;
+        if (noRetryReason != null) {
+            log.error("💥 {} failed on attempt {}/{} and cannot be retried: {}", 
+                    componentLabel, attempt, maxRetries, noRetryReason);
+            result.complete(false);
+            return;
+        }
+        
+        if (attempt >= maxRetries) {
+            log.error("💥 {} failed after {} attempts", componentLabel, maxRetries);
+            result.complete(false);
+            return;
+        }
+        
+        long delayMs = retryDelayMs(retryInterval, maxRetryInterval, attempt);
+        log.warn("⚠️ {} failed on attempt {}/{}, retrying in {}ms...", 
+                componentLabel, attempt, maxRetries, delayMs);
+        
+        try {
+            taskScheduler.schedule(
+                () -> runDispatcher.resume(() -> attemptExecution(componentData, handler, context, attempt + 1, 
+                        maxRetries, retryInterval, maxRetryInterval, result)),
+                Instant.now().plusMillis(delayMs)
+            );
+        } catch (Exception e) {
+            // Scheduler sudah shutdown atau menolak task
+            log.error("❌ Could not schedule retry for {}: {}", componentLabel, e.getMessage());
+            result.complete(false);
+        }
+    }
+    
+    // Backoff eksponensial dengan "equal jitter": setengah delay tetap, setengah acak agar retry tidak serentak
+    private long retryDelayMs(int retryInterval, int maxRetryInterval, int attempt) {
+        long baseMs = Math.max(0, retryInterval) * 1000L;
+        long capMs = Math.max(baseMs, Math.max(0, maxRetryInterval) * 1000L);
+        long backoffMs = Math.min(capMs, baseMs << Math.min(attempt - 1, 30));
+        long halfMs = backoffMs / 2;
+        return halfMs + ThreadLocalRandom.current().nextLong(backoffMs - halfMs + 1);
     }
 }
\ No newline at end of file
@@ -1,6 +1,15 @@
 package com.uncal.bpm_backend.service;
 
+import org.json.JSONObject;
+
 public interface ComponentHandler {
     String getComponentType();
+    // Subtype unik yang dideklarasikan palette Component (e.g., "jdbc-sender"), dipakai untuk dispatch handler
+    String getComponentSubtype();
     boolean execute(ComponentExecutionData componentData, ExecutionContext context);
+    
+    // Opsional: parse config sekali saat plan scenario dikompilasi, hasilnya ada di ComponentExecutionData.compiledConfig
+    default Object compileConfig(JSONObject config) {
+        return null;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,285 @@
+package com.uncal.bpm_backend.service;
+
+import java.io.ByteArrayInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+import org.json.JSONObject;
+import org.springframework.stereotype.Component;
+
+import com.uncal.bpm_backend.util.StreamingChecksum;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Stage Processor antara File Sender dan File Receiver untuk compress/decompress gzip atau deflate.
+ * Data dibaca dan ditulis per chunk lewat FileChannel ke file staging, sehingga heap tidak ikut membesar
+ * sesuai ukuran file. Receiver mengirim file staging ini (payloadFile) menggantikan file sumber.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class CompressionHandler implements ComponentHandler {
+
+    private static final int DEFAULT_BUFFER_SIZE_KB = 256;
+
+    private final ProcessedFileLedger processedFileLedger;
+
+    private record CompressionSettings(boolean compress, boolean gzip, int level, int bufferSize,
+                                       Path workDirectory, boolean appendExtension, String checksumAlgorithm) {}
+
+    // Hasil stage: file staging beserta checksum isinya (dihitung saat ditulis, untuk dicatat Receiver)
+    private record StagedPayload(Path path, String checksum) {}
+
+    @Override
+    public String getComponentType() {
+        return "Processor";
+    }
+
+    @Override
+    public String getComponentSubtype() {
+        return "compression";
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public boolean execute(ComponentExecutionData componentData, ExecutionContext context) {
+        String componentLabel = componentData.getLabel();
+        JSONObject config = componentData.getConfigData();
+
+        CompressionSettings settings = new CompressionSettings(
+                !"decompress".equalsIgnoreCase(config.optString("operation", "compress")),
+                !"deflate".equalsIgnoreCase(config.optString("format", "gzip")),
+                config.optInt("level", Deflater.DEFAULT_COMPRESSION),
+                Math.max(8, config.optInt("bufferSizeKb", DEFAULT_BUFFER_SIZE_KB)) * 1024,
+                Paths.get(config.optString("workDirectory", System.getProperty("java.io.tmpdir"))),
+                config.optBoolean("appendExtension", true),
+                StreamingChecksum.normalize(config.optString("checksum", StreamingChecksum.NONE)));
+
+        log.info("🗜️ Compression [{}] - Operation: {}, Format: {}", componentLabel,
+                settings.compress() ? "compress" : "decompress", settings.gzip() ? "gzip" : "deflate");
+
+        if (context.contains("fileBatch")) {
+            return processBatch((List<FileTransferItem>) context.get("fileBatch"), settings, context);
+        }
+
+        if (!context.contains("fileName")) {
+            log.error("❌ No file data available in context for compression stage");
+            context.put("lastError", "Compression stage requires a File Sender before it");
+            return false;
+        }
+
+        String fileName = (String) context.get("fileName");
+        try {
+            String payloadFile = (String) context.get("payloadFile");
+            String currentName = context.contains("payloadFileName") ? (String) context.get("payloadFileName") : fileName;
+
+            StagedPayload staged = stage(payloadFile, (String) context.get("sourceFile"),
+                                         (byte[]) context.get("fileContent"), settings);
+
+            context.put("payloadFile", staged.path().toString());
+            context.put("payloadFileName", outputName(currentName, settings));
+            registerCleanup(context, staged.path());
+            context.put("payloadSize", Files.size(staged.path()));
+            if (staged.checksum() != null) {
+                context.put("payloadChecksum", staged.checksum());
+                context.put("payloadChecksumAlgorithm", settings.checksumAlgorithm());
+            } else {
+                context.remove("payloadChecksum");
+                context.remove("payloadChecksumAlgorithm");
+            }
+            // Isi file di heap tidak dipakai lagi, Receiver mengirim payloadFile
+            context.remove("fileContent");
+
+            log.info("✅ {} {} → {} ({} → {} bytes)", settings.compress() ? "Compressed" : "Decompressed",
+                    currentName, context.get("payloadFileName"), context.get("fileSize"), context.get("payloadSize"));
+            return true;
+
+        } catch (Exception e) {
+            log.error("❌ Compression stage failed for {}: {}", fileName, e.getMessage(), e);
+            context.put("lastError", "Compression failed for " + fileName + ": " + e.getMessage());
+            Object fingerprint = context.get("sourceFingerprint");
+            if (fingerprint != null) {
+                processedFileLedger.release(fingerprint.toString());
+            }
+            return false;
+        }
+    }
+
+    // File dalam batch diproses berurutan; jika satu gagal, seluruh batch dilepas supaya diambil ulang
+    private boolean processBatch(List<FileTransferItem> batch, CompressionSettings settings, ExecutionContext context) {
+        log.info("🗜️ Processing batch of {} files", batch.size());
+
+        for (FileTransferItem item : batch) {
+            try {
+                String currentName = item.getPayloadFileName() != null ? item.getPayloadFileName() : item.getFileName();
+                StagedPayload staged = stage(item.getPayloadFile(), item.getSourceFile(), item.getFileContent(), settings);
+                item.setPayloadFile(staged.path().toString());
+                item.setPayloadFileName(outputName(currentName, settings));
+                registerCleanup(context, staged.path());
+                item.setPayloadChecksum(staged.checksum());
+                item.setPayloadChecksumAlgorithm(staged.checksum() != null ? settings.checksumAlgorithm() : null);
+                item.setFileContent(null);
+            } catch (Exception e) {
+                log.error("❌ Compression stage failed for batch item {}: {}", item.getFileName(), e.getMessage());
+                for (FileTransferItem claimed : batch) {
+                    deleteStaged(claimed.getPayloadFile());
+                    if (claimed.getFingerprint() != null) {
+                        processedFileLedger.release(claimed.getFingerprint());
+                    }
+                }
+                return false;
+            }
+        }
+
+        log.info("✅ Batch of {} files {}", batch.size(), settings.compress() ? "compressed" : "decompressed");
+        return true;
+    }
+
+    // Input diambil dari payload stage sebelumnya, isi file di memory, atau langsung dari file sumber
+    private StagedPayload stage(String payloadFile, String sourceFile, byte[] fileContent,
+                                CompressionSettings settings) throws IOException {
+        Files.createDirectories(settings.workDirectory());
+        Path staged = Files.createTempFile(settings.workDirectory(), ".bpm-", ".stage");
+        StreamingChecksum checksum = StreamingChecksum.of(settings.checksumAlgorithm());
+
+        try (InputStream raw = open(payloadFile, sourceFile, fileContent);
+             InputStream in = decode(raw, settings);
+             FileChannel target = FileChannel.open(staged, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+             OutputStream out = encode(checksummed(Channels.newOutputStream(target), checksum), settings)) {
+
+            byte[] chunk = new byte[settings.bufferSize()];
+            int read;
+            while ((read = in.read(chunk)) != -1) {
+                out.write(chunk, 0, read);
+            }
+        } catch (IOException | RuntimeException e) {
+            deleteStaged(staged.toString());
+            throw e;
+        }
+
+        // Payload dari stage sebelumnya sudah tidak dipakai
+        deleteStaged(payloadFile);
+        return new StagedPayload(staged, checksum != null ? checksum.hex() : null);
+    }
+
+    // Payload yang sudah dikirim Receiver sudah dipindah; yang tersisa (kirim gagal) dihapus di akhir run,
+    // bukan saat attempt Receiver gagal, supaya retry Receiver masih bisa mengirimnya
+    private void registerCleanup(ExecutionContext context, Path staged) {
+        context.registerResource(() -> deleteStaged(staged.toString()));
+    }
+
+    // Checksum dihitung dari byte yang benar-benar ditulis ke file staging
+    private OutputStream checksummed(OutputStream out, StreamingChecksum checksum) {
+        if (checksum == null) {
+            return out;
+        }
+        return new FilterOutputStream(out) {
+            @Override
+            public void write(int b) throws IOException {
+                checksum.update(new byte[] { (byte) b }, 0, 1);
+                out.write(b);
+            }
+
+            @Override
+            public void write(byte[] bytes, int offset, int length) throws IOException {
+                checksum.update(bytes, offset, length);
+                out.write(bytes, offset, length);
+            }
+        };
+    }
+
+    private InputStream open(String payloadFile, String sourceFile, byte[] fileContent) throws IOException {
+        if (payloadFile != null) {
+            return Channels.newInputStream(FileChannel.open(Paths.get(payloadFile), StandardOpenOption.READ));
+        }
+        if (fileContent != null) {
+            return new ByteArrayInputStream(fileContent);
+        }
+        if (sourceFile != null && !sourceFile.isEmpty()) {
+            return Channels.newInputStream(FileChannel.open(Paths.get(sourceFile), StandardOpenOption.READ));
+        }
+        throw new IOException("No file data available to process");
+    }
+
+    private InputStream decode(InputStream in, CompressionSettings settings) throws IOException {
+        if (settings.compress()) {
+            return in;
+        }
+        if (settings.gzip()) {
+            return new GZIPInputStream(in, settings.bufferSize());
+        }
+        // Inflater/Deflater milik sendiri tidak di-end otomatis oleh stream, native memory dilepas saat close
+        return new InflaterInputStream(in, new Inflater(), settings.bufferSize()) {
+            @Override
+            public void close() throws IOException {
+                try {
+                    super.close();
+                } finally {
+                    inf.end();
+                }
+            }
+        };
+    }
+
+    private OutputStream encode(OutputStream out, CompressionSettings settings) throws IOException {
+        if (!settings.compress()) {
+            return out;
+        }
+        if (settings.gzip()) {
+            return new GZIPOutputStream(out, settings.bufferSize()) {
+                {
+                    def.setLevel(settings.level());
+                }
+            };
+        }
+        return new DeflaterOutputStream(out, new Deflater(settings.level()), settings.bufferSize()) {
+            @Override
+            public void close() throws IOException {
+                try {
+                    super.close();
+                } finally {
+                    def.end();
+                }
+            }
+        };
+    }
+
+    private String outputName(String fileName, CompressionSettings settings) {
+        if (!settings.appendExtension()) {
+            return fileName;
+        }
+        String extension = settings.gzip() ? ".gz" : ".deflate";
+        if (settings.compress()) {
+            return fileName + extension;
+        }
+        return fileName.endsWith(extension) ? fileName.substring(0, fileName.length() - extension.length()) : fileName;
+    }
+
+    private void deleteStaged(String stagedFile) {
+        if (stagedFile == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(Paths.get(stagedFile));
+        } catch (IOException e) {
+            log.warn("⚠️ Failed to delete staged file {}: {}", stagedFile, e.getMessage());
+        }
+    }
+}
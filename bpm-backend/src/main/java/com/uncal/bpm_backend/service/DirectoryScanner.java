@@ -0,0 +1,81 @@
+package com.uncal.bpm_backend.service;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.function.Predicate;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Scanner inbox untuk direktori besar. Atribut setiap entry dibaca sekali,
+ * lalu hanya K file tertua yang disimpan dalam heap terbatas (O(n log K)).
+ */
+@Slf4j
+public final class DirectoryScanner {
+
+    public record ScannedFile(Path path, long size, long lastModified) {}
+
+    private static final Comparator<ScannedFile> OLDEST_FIRST = Comparator
+            .comparingLong(ScannedFile::lastModified)
+            .thenComparing(ScannedFile::path);
+
+    private DirectoryScanner() {
+    }
+
+    /**
+     * Mengembalikan maksimal {@code limit} file reguler yang cocok dengan pattern dan lolos filter,
+     * diurutkan dari yang paling lama dimodifikasi.
+     */
+    public static List<ScannedFile> scanOldest(Path directory, PathMatcher matcher, int limit,
+                                               Predicate<ScannedFile> filter) throws IOException {
+        // Max-heap: elemen teratas adalah file terbaru, dibuang saat heap melebihi limit
+        PriorityQueue<ScannedFile> heap = new PriorityQueue<>(limit + 1, OLDEST_FIRST.reversed());
+        int scanned = 0;
+
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory,
+                entry -> matcher.matches(entry.getFileName()))) {
+            for (Path entry : stream) {
+                scanned++;
+
+                BasicFileAttributes attributes;
+                try {
+                    attributes = Files.readAttributes(entry, BasicFileAttributes.class);
+                } catch (IOException e) {
+                    // File bisa hilang di tengah scan (dipindah scenario lain)
+                    continue;
+                }
+
+                if (!attributes.isRegularFile()) {
+                    continue;
+                }
+
+                ScannedFile file = new ScannedFile(entry, attributes.size(), attributes.lastModifiedTime().toMillis());
+
+                if (heap.size() >= limit && OLDEST_FIRST.compare(file, heap.peek()) >= 0) {
+                    continue;
+                }
+                if (!filter.test(file)) {
+                    continue;
+                }
+
+                heap.offer(file);
+                if (heap.size() > limit) {
+                    heap.poll();
+                }
+            }
+        }
+
+        List<ScannedFile> result = new ArrayList<>(heap);
+        result.sort(OLDEST_FIRST);
+        log.debug("🔍 Scanned {} entries in {}, selected {}", scanned, directory, result.size());
+        return result;
+    }
+}
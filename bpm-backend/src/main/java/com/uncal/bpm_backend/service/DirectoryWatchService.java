@@ -0,0 +1,229 @@
+package com.uncal.bpm_backend.service;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Satu WatchService bersama untuk semua File Sender dengan triggerMode "watch".
+ * Setiap scenario mendaftarkan direktori + pattern miliknya, dan callback dipanggil
+ * begitu ada file yang cocok dibuat atau selesai ditulis.
+ */
+@Service
+@Slf4j
+public class DirectoryWatchService {
+
+    // Interval cek ulang direktori yang WatchKey-nya invalid (mis. direktori dihapus lalu dibuat lagi)
+    private static final long REREGISTER_INTERVAL_MS = 5000;
+
+    private final Map<Long, WatchRegistration> registrations = new ConcurrentHashMap<>();
+    private final Map<Path, WatchKey> directoryKeys = new ConcurrentHashMap<>();
+
+    private WatchService watchService;
+    private Thread watchThread;
+
+    private record WatchRegistration(Path directory, PathMatcher matcher, Runnable trigger) {}
+
+    public synchronized boolean register(Long scenarioId, String directory, String filePattern, Runnable trigger) {
+        try {
+            Path dir = Paths.get(directory).toAbsolutePath().normalize();
+            PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + filePattern);
+
+            ensureStarted();
+
+            if (!directoryKeys.containsKey(dir)) {
+                directoryKeys.put(dir, watch(dir));
+            }
+
+            registrations.put(scenarioId, new WatchRegistration(dir, matcher, trigger));
+            log.info("👀 Watching directory {} (pattern: {}) for scenario {}", dir, filePattern, scenarioId);
+            return true;
+
+        } catch (Exception e) {
+            log.error("❌ Failed to watch directory {} for scenario {}: {}", directory, scenarioId, e.getMessage());
+            return false;
+        }
+    }
+
+    public synchronized void unregister(Long scenarioId) {
+        WatchRegistration registration = registrations.remove(scenarioId);
+        if (registration == null) {
+            return;
+        }
+
+        boolean stillWatched = registrations.values().stream()
+                .anyMatch(r -> r.directory().equals(registration.directory()));
+
+        if (!stillWatched) {
+            WatchKey key = directoryKeys.remove(registration.directory());
+            if (key != null) {
+                key.cancel();
+            }
+        }
+
+        log.info("🙈 Stopped watching {} for scenario {}", registration.directory(), scenarioId);
+    }
+
+    // true hanya jika direktorinya benar-benar sedang di-watch (key valid)
+    public boolean isRegistered(Long scenarioId) {
+        WatchRegistration registration = registrations.get(scenarioId);
+        return registration != null && directoryKeys.containsKey(registration.directory());
+    }
+
+    private WatchKey watch(Path dir) throws IOException {
+        return dir.register(watchService,
+                StandardWatchEventKinds.ENTRY_CREATE,
+                StandardWatchEventKinds.ENTRY_MODIFY);
+    }
+
+    private void ensureStarted() throws IOException {
+        if (watchService != null) {
+            return;
+        }
+
+        watchService = FileSystems.getDefault().newWatchService();
+        watchThread = new Thread(this::watchLoop, "directory-watch");
+        watchThread.setDaemon(true);
+        watchThread.start();
+        log.info("✅ Directory watch service started");
+    }
+
+    private void watchLoop() {
+        while (!Thread.currentThread().isInterrupted()) {
+            WatchKey key;
+            try {
+                key = watchService.poll(REREGISTER_INTERVAL_MS, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+
+            if (key == null) {
+                reregisterInvalidDirectories();
+                continue;
+            }
+
+            Path dir = (Path) key.watchable();
+            List<WatchEvent<?>> events = key.pollEvents();
+
+            for (WatchRegistration registration : registrations.values()) {
+                if (registration.directory().equals(dir) && matchesAny(registration, events)) {
+                    try {
+                        registration.trigger().run();
+                    } catch (Exception e) {
+                        log.error("❌ Watch trigger failed for {}: {}", dir, e.getMessage());
+                    }
+                }
+            }
+
+            if (!key.reset()) {
+                handleInvalidKey(dir, key);
+            }
+        }
+        log.info("🛑 Directory watch loop stopped");
+    }
+
+    // Key invalid (direktori dihapus/di-unmount): lepas dari directoryKeys supaya bisa didaftarkan ulang
+    private void handleInvalidKey(Path dir, WatchKey key) {
+        List<Runnable> triggers;
+        synchronized (this) {
+            if (!directoryKeys.remove(dir, key)) {
+                return;
+            }
+            log.warn("⚠️ Watch key for {} is no longer valid, re-registering", dir);
+            triggers = reregister(dir);
+        }
+        runTriggers(dir, triggers);
+    }
+
+    private void reregisterInvalidDirectories() {
+        Map<Path, List<Runnable>> triggers = new HashMap<>();
+        synchronized (this) {
+            registrations.values().stream()
+                    .map(WatchRegistration::directory)
+                    .distinct()
+                    .filter(dir -> !directoryKeys.containsKey(dir))
+                    .forEach(dir -> triggers.put(dir, reregister(dir)));
+        }
+        triggers.forEach(this::runTriggers);
+    }
+
+    // Direktori yang belum ada dicoba lagi di putaran poll berikutnya. Event selama key invalid
+    // sudah hilang, jadi trigger scenario di direktori itu dikembalikan untuk dipicu sekali
+    private List<Runnable> reregister(Path dir) {
+        if (watchService == null || !Files.isDirectory(dir)) {
+            return List.of();
+        }
+        try {
+            directoryKeys.put(dir, watch(dir));
+            log.info("👀 Re-registered watch on {}", dir);
+        } catch (IOException | ClosedWatchServiceException e) {
+            log.warn("⚠️ Failed to re-register watch on {}: {}", dir, e.getMessage());
+            return List.of();
+        }
+        return registrations.values().stream()
+                .filter(registration -> registration.directory().equals(dir))
+                .map(WatchRegistration::trigger)
+                .toList();
+    }
+
+    private void runTriggers(Path dir, List<Runnable> triggers) {
+        for (Runnable trigger : triggers) {
+            try {
+                trigger.run();
+            } catch (Exception e) {
+                log.error("❌ Watch trigger failed for {}: {}", dir, e.getMessage());
+            }
+        }
+    }
+
+    private boolean matchesAny(WatchRegistration registration, List<WatchEvent<?>> events) {
+        for (WatchEvent<?> event : events) {
+            // OVERFLOW berarti ada event yang hilang - anggap saja ada file baru
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                return true;
+            }
+            Object context = event.context();
+            if (context instanceof Path fileName && registration.matcher().matches(fileName)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @PreDestroy
+    public synchronized void shutdown() {
+        registrations.clear();
+        directoryKeys.clear();
+        if (watchService != null) {
+            try {
+                watchService.close();
+            } catch (IOException e) {
+                log.warn("⚠️ Error closing watch service: {}", e.getMessage());
+            }
+            watchService = null;
+        }
+        if (watchThread != null) {
+            watchThread.interrupt();
+            watchThread = null;
+        }
+    }
+}
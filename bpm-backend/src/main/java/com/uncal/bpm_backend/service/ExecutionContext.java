@@ -1,10 +1,28 @@
 package com.uncal.bpm_backend.service;
 
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BooleanSupplier;
 
+import lombok.extern.slf4j.Slf4j;
+
+@Slf4j
 public class ExecutionContext {
+    private static final String NO_RETRY_KEY = "noRetryReason";
+    
     private final Map<String, Object> data = new ConcurrentHashMap<>();
+    // Resource yang hidup lintas component (mis. cursor JDBC), ditutup engine di akhir eksekusi
+    private final Deque<AutoCloseable> resources = new ArrayDeque<>();
+    private final ReentrantLock resourceLock = new ReentrantLock();
+    // Aksi yang baru boleh dijalankan jika seluruh scenario berhasil (mis. commit watermark JDBC)
+    private final List<Runnable> successCallbacks = new CopyOnWriteArrayList<>();
+    // Dicek sebelum step dan attempt retry berikutnya; false setelah scenario di-stop
+    private volatile BooleanSupplier activeCheck = () -> true;
     
     public void put(String key, Object value) {
         data.put(key, value);
@@ -27,7 +45,74 @@ public class ExecutionContext {
         return data.containsKey(key);
     }
     
+    public Object remove(String key) {
+        return data.remove(key);
+    }
+    
     public void clear() {
         data.clear();
     }
-}
\ No newline at end of file
+    
+    public void setActiveCheck(BooleanSupplier activeCheck) {
+        this.activeCheck = activeCheck;
+    }
+    
+    public boolean isActive() {
+        return activeCheck.getAsBoolean();
+    }
+    
+    // Component menandai kegagalan yang tidak boleh di-retry (mis. stream sumber sudah terpakai sebagian)
+    public void failWithoutRetry(String reason) {
+        data.put(NO_RETRY_KEY, reason);
+    }
+    
+    public String takeNoRetryReason() {
+        return (String) data.remove(NO_RETRY_KEY);
+    }
+    
+    public void onSuccess(Runnable callback) {
+        successCallbacks.add(callback);
+    }
+    
+    public void runSuccessCallbacks() {
+        for (Runnable callback : successCallbacks) {
+            try {
+                callback.run();
+            } catch (Exception e) {
+                log.error("❌ Post-success action failed: {}", e.getMessage(), e);
+            }
+        }
+        successCallbacks.clear();
+    }
+    
+    public void registerResource(AutoCloseable resource) {
+        resourceLock.lock();
+        try {
+            resources.push(resource);
+        } finally {
+            resourceLock.unlock();
+        }
+    }
+    
+    // Ditutup dengan urutan terbalik dari pendaftaran; close berulang harus aman di sisi resource.
+    // Close (I/O jaringan pada JDBC) dilakukan di luar lock supaya virtual thread tidak ter-pin.
+    public void closeResources() {
+        while (true) {
+            AutoCloseable resource;
+            resourceLock.lock();
+            try {
+                resource = resources.poll();
+            } finally {
+                resourceLock.unlock();
+            }
+            if (resource == null) {
+                return;
+            }
+            try {
+                resource.close();
+            } catch (Exception e) {
+                log.warn("⚠️ Failed to close execution resource: {}", e.getMessage());
+            }
+        }
+    }
+}
@@ -74,6 +74,24 @@ public class ExecutionLogService {
                 if (context.contains("outputFile")) {
                     executionLog.setDestinationFile(context.get("outputFile", String.class));
                 }
+                if (context.contains("rowsPerSecond")) {
+                    executionLog.setRowsPerSecond(context.get("rowsPerSecond", Double.class));
+                }
+                if (context.contains("fileChecksum")) {
+                    executionLog.setChecksum(context.get("fileChecksum", String.class));
+                    executionLog.setChecksumAlgorithm(context.get("checksumAlgorithm", String.class));
+                }
+                
+                // For File batch scenarios
+                if (context.contains("fileBatch")) {
+                    @SuppressWarnings("unchecked")
+                    List<FileTransferItem> batch = (List<FileTransferItem>) context.get("fileBatch");
+                    executionLog.setSourceFile(summarizeBatch(batch));
+                    recordBatchChecksums(executionLog, batch);
+                    if (context.contains("outputDirectory")) {
+                        executionLog.setDestinationFile(context.get("outputDirectory", String.class));
+                    }
+                }
                 
                 // For JDBC-based scenarios
                 if (context.contains("sourceTable")) {
@@ -109,6 +127,34 @@ public class ExecutionLogService {
         }
     }
     
+    private void recordBatchChecksums(ExecutionLog executionLog, List<FileTransferItem> batch) {
+        StringBuilder checksums = new StringBuilder();
+        for (FileTransferItem item : batch) {
+            if (!item.isSuccess() || item.getChecksum() == null) {
+                continue;
+            }
+            checksums.append(item.getChecksum()).append("  ").append(item.getFileName()).append('\n');
+            if (executionLog.getChecksumAlgorithm() == null) {
+                executionLog.setChecksumAlgorithm(item.getChecksumAlgorithm());
+            }
+        }
+        if (checksums.length() > 0) {
+            executionLog.setBatchChecksums(checksums.toString());
+        }
+    }
+    
+    private String summarizeBatch(List<FileTransferItem> batch) {
+        StringBuilder summary = new StringBuilder(batch.size() + " files: ");
+        for (int i = 0; i < batch.size(); i++) {
+            if (i > 0) {
+                summary.append(", ");
+            }
+            summary.append(batch.get(i).getFileName());
+        }
+        // Kolom source_file maksimal 500 karakter
+        return summary.length() > 500 ? summary.substring(0, 497) + "..." : summary.toString();
+    }
+    
     @Transactional
     public void updateComponentsExecuted(Long logId, int count) {
         try {
@@ -1,32 +1,88 @@
 package com.uncal.bpm_backend.service;
 
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
 import java.nio.file.StandardOpenOption;
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+import java.util.zip.CRC32;
 
 import org.json.JSONObject;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.task.TaskExecutor;
 import org.springframework.stereotype.Component;
 
+import com.uncal.bpm_backend.model.ProcessedFile;
+import com.uncal.bpm_backend.util.StreamingChecksum;
+import com.uncal.bpm_backend.util.StripedLock;
+
 import lombok.extern.slf4j.Slf4j;
 
 @Component
 @Slf4j
 public class FileReceiverHandler implements ComponentHandler {
     
-    private final Object fileWriteLock = new Object();
-    private final DateTimeFormatter dateFormatter = DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss");
-    private final DateTimeFormatter dateOnlyFormatter = DateTimeFormatter.ofPattern("yyyyMMdd");
-    private final DateTimeFormatter timeOnlyFormatter = DateTimeFormatter.ofPattern("HHmmss");
+    private static final long DEFAULT_CHUNK_SIZE = 64L * 1024 * 1024;
+    private static final long DEFAULT_FSYNC_WINDOW_MS = 10;
+    private static final int INLINE_REMOVE_ATTEMPTS = 5;
+    private static final int COPY_BUFFER_SIZE = 1024 * 1024;
+    private static final List<String> BATCH_SHARED_KEYS = List.of(
+            "transferMode", "transferChunkSize", "processedAction", "renameTo", "moveTo", "sourceDirectory");
+    
+    private final TaskExecutor fileTransferExecutor;
+    private final ProcessedFileLedger processedFileLedger;
+    private final FileSyncCoordinator fileSyncCoordinator;
+    private final SourceFileProcessor sourceFileProcessor;
+    private final SourceFileActionQueue sourceFileActionQueue;
+    // Lock per file tujuan: hanya penulisan ke path yang sama yang diserialisasi
+    private final StripedLock fileWriteLocks = new StripedLock(64);
+    
+    // direct: tulis langsung ke nama akhir; atomic: tulis ke file temp, fsync, lalu rename ke nama akhir
+    // postProcessing inline/async: action file sumber dijalankan langsung atau lewat antrian
+    // checksum CRC32C/SHA-256/NONE dihitung saat transfer; verifySidecar membandingkan dengan file checksum di samping sumber
+    private record DeliveryOptions(boolean atomic, long fsyncWindowMs, boolean asyncPostProcessing,
+                                   String checksumAlgorithm, boolean verifySidecar, String sidecarExtension) {}
+    
+    public FileReceiverHandler(@Qualifier("fileTransferExecutor") TaskExecutor fileTransferExecutor,
+                               ProcessedFileLedger processedFileLedger,
+                               FileSyncCoordinator fileSyncCoordinator,
+                               SourceFileProcessor sourceFileProcessor,
+                               SourceFileActionQueue sourceFileActionQueue) {
+        this.fileTransferExecutor = fileTransferExecutor;
+        this.processedFileLedger = processedFileLedger;
+        this.fileSyncCoordinator = fileSyncCoordinator;
+        this.sourceFileProcessor = sourceFileProcessor;
+        this.sourceFileActionQueue = sourceFileActionQueue;
+    }
     
     @Override
     public String getComponentType() {
         return "Receiver";
     }
     
+    @Override
+    public String getComponentSubtype() {
+        return "file-receiver";
+    }
+    
+    // Default NONE supaya stream transfer tetap zero-copy (transferTo); CRC32C hanya jika sidecar diverifikasi
+    private String checksumAlgorithm(JSONObject config) {
+        String fallback = config.optBoolean("verifySidecar", false) ? StreamingChecksum.CRC32C : StreamingChecksum.NONE;
+        return StreamingChecksum.normalize(config.optString("checksum", fallback));
+    }
+    
     @Override
     public boolean execute(ComponentExecutionData componentData, ExecutionContext context) {
         String componentLabel = componentData.getLabel();
@@ -34,71 +90,294 @@ public class FileReceiverHandler implements ComponentHandler {
         try {
             JSONObject config = componentData.getConfigData();
             String outputDirectory = config.optString("directory", "");
+            DeliveryOptions options = new DeliveryOptions(
+                    "atomic".equalsIgnoreCase(config.optString("deliveryMode", "direct")),
+                    config.optLong("fsyncWindowMs", DEFAULT_FSYNC_WINDOW_MS),
+                    "async".equalsIgnoreCase(config.optString("postProcessing", "inline")),
+                    checksumAlgorithm(config),
+                    config.optBoolean("verifySidecar", false),
+                    config.optString("sidecarExtension", ""));
             
-            log.info("📤 File Receiver [{}] - Output Directory: {}", componentLabel, outputDirectory);
+            log.info("📤 File Receiver [{}] - Output Directory: {}, Delivery Mode: {}", 
+                    componentLabel, outputDirectory, options.atomic() ? "atomic" : "direct");
             
             if (outputDirectory.isEmpty()) {
                 log.error("❌ Invalid configuration for File Receiver: output directory is empty");
                 return false;
             }
             
-            if (!context.contains("fileContent")) {
-                log.error("❌ No file content available in context for File Receiver");
-                return false;
+            if (context.contains("fileBatch")) {
+                return processBatch(context, outputDirectory, options);
             }
             
-            byte[] fileContent = (byte[]) context.get("fileContent");
-            String originalFileName = (String) context.get("fileName");
-            String sourceFilePath = (String) context.get("sourceFile");
-            Long fileSize = (Long) context.get("fileSize");
-            
-            String processedAction = getStringFromContext(context, "processedAction", "remove");
-            String renameTo = getStringFromContext(context, "renameTo", "");
-            String moveTo = getStringFromContext(context, "moveTo", "");
-            String sourceDirectory = getStringFromContext(context, "sourceDirectory", "");
+            return deliverFile(context, outputDirectory, options);
             
-            log.info("📥 Receiving file: {} ({} bytes) from: {}", originalFileName, fileSize, sourceFilePath);
-            log.info("⚙️ Processing config - Action: {}, RenameTo: '{}', MoveTo: '{}'", 
-                    processedAction, renameTo, moveTo);
+        } catch (Exception e) {
+            log.error("❌ File Receiver execution failed [{}]: {}", componentLabel, e.getMessage(), e);
+            String sourceFingerprint = getStringFromContext(context, "sourceFingerprint", "");
+            if (!sourceFingerprint.isEmpty()) {
+                processedFileLedger.release(sourceFingerprint);
+            }
+            return false;
+        }
+    }
+    
+    // Kirim satu file berdasarkan data di context, lalu proses file sumber sesuai processedAction
+    private boolean deliverFile(ExecutionContext context, String outputDirectory, DeliveryOptions options) {
+        String transferMode = getStringFromContext(context, "transferMode", "memory");
+        boolean streamTransfer = "stream".equals(transferMode);
+        boolean chunkedTransfer = "chunked".equals(transferMode);
+        // Payload dari stage Processor (mis. kompresi) menggantikan file sumber sebagai isi yang dikirim
+        String payloadFile = getStringFromContext(context, "payloadFile", "");
+        boolean payloadTransfer = !payloadFile.isEmpty();
+        
+        if (!payloadTransfer && !streamTransfer && !chunkedTransfer && !context.contains("fileContent")) {
+            log.error("❌ No file content available in context for File Receiver");
+            return false;
+        }
+        
+        byte[] fileContent = (byte[]) context.get("fileContent");
+        String originalFileName = (String) context.get("fileName");
+        String deliveredFileName = getStringFromContext(context, "payloadFileName", originalFileName);
+        String sourceFilePath = (String) context.get("sourceFile");
+        Long fileSize = (Long) context.get("fileSize");
+        
+        String processedAction = getStringFromContext(context, "processedAction", "remove");
+        String renameTo = getStringFromContext(context, "renameTo", "");
+        String moveTo = getStringFromContext(context, "moveTo", "");
+        String sourceDirectory = getStringFromContext(context, "sourceDirectory", "");
+        
+        log.info("📥 Receiving file: {} ({} bytes) from: {}", originalFileName, fileSize, sourceFilePath);
+        log.info("⚙️ Processing config - Action: {}, RenameTo: '{}', MoveTo: '{}'", 
+                processedAction, renameTo, moveTo);
+        
+        ProcessedFile ledgerEntry = context.contains("sourceLedgerEntry") 
+                ? context.get("sourceLedgerEntry", ProcessedFile.class) : null;
+        if (ledgerEntry != null) {
+            // Claim diperpanjang supaya tidak di-purge/di-claim ulang selama file besar masih disalin
+            processedFileLedger.refresh(ledgerEntry);
+        }
+        
+        Path outputPath = Paths.get(outputDirectory).resolve(deliveredFileName);
+        StreamingChecksum checksum = StreamingChecksum.of(options.checksumAlgorithm());
+        boolean transferSuccess;
+        ReentrantLock writeLock = fileWriteLocks.get(outputPath);
+        writeLock.lock();
+        try {
+            Path writePath = null;
+            boolean checksumMismatch = false;
+            try {
+                Files.createDirectories(outputPath.getParent());
+                if (Files.exists(outputPath)) {
+                    log.warn("⚠️ File already exists in destination: {}, will overwrite", outputPath);
+                }
+                
+                // Mode atomic: consumer di direktori tujuan tidak pernah melihat file setengah jadi
+                writePath = options.atomic() ? stagingPath(outputPath) : outputPath;
+                
+                if (payloadTransfer) {
+                    transferSuccess = processPayloadTransfer(Paths.get(payloadFile), writePath,
+                                                             payloadChecksum(context, options), options);
+                } else if (streamTransfer) {
+                    transferSuccess = processStreamTransfer(sourceFilePath, writePath, checksum);
+                } else if (chunkedTransfer) {
+                    long chunkSize = context.contains("transferChunkSize") ? 
+                                     (Long) context.get("transferChunkSize") : DEFAULT_CHUNK_SIZE;
+                    transferSuccess = processChunkedTransfer(sourceFilePath, writePath, chunkSize, checksum, context);
+                } else {
+                    transferSuccess = processFileTransfer(fileContent, writePath, checksum);
+                }
+                
+                // Payload dipindah tanpa dibaca ulang; checksum-nya sudah dihitung oleh stage Processor
+                String fileChecksum = payloadTransfer ? payloadChecksum(context, options) 
+                                                      : (checksum != null ? checksum.hex() : null);
+                if (transferSuccess && fileChecksum != null) {
+                    context.put("fileChecksum", fileChecksum);
+                    context.put("checksumAlgorithm", options.checksumAlgorithm());
+                    log.info("🔐 {} checksum for {}: {}", options.checksumAlgorithm(), deliveredFileName, fileChecksum);
+                }
+                
+                if (transferSuccess && options.verifySidecar()) {
+                    checksumMismatch = !verifySidecar(sourceFilePath, fileChecksum, payloadTransfer, options, context);
+                    transferSuccess = !checksumMismatch;
+                }
+                
+                if (transferSuccess && options.atomic()) {
+                    fileSyncCoordinator.commit(writePath, outputPath, options.fsyncWindowMs());
+                    log.info("🔒 File committed atomically: {}", outputPath);
+                }
+            } catch (Exception e) {
+                log.error("❌ Error delivering file to destination {}: {}", outputPath, e.getMessage(), e);
+                transferSuccess = false;
+            }
             
-            boolean transferSuccess;
-            synchronized (fileWriteLock) {
-                transferSuccess = processFileTransfer(fileContent, originalFileName, outputDirectory, context);
+            // File yang gagal verifikasi dihapus juga pada mode direct, supaya consumer tidak membaca data rusak
+            if (!transferSuccess && writePath != null && (options.atomic() || checksumMismatch)) {
+                deleteTempFile(writePath);
+            }
+            // Payload yang gagal dikirim tidak dihapus di sini: retry Receiver masih membutuhkannya,
+            // sisa payload dibersihkan di akhir run (resource yang didaftarkan stage Processor)
+        } finally {
+            writeLock.unlock();
+        }
+        
+        String sourceFingerprint = getStringFromContext(context, "sourceFingerprint", "");
+        
+        if (transferSuccess) {
+            log.info("✅ File successfully transferred to: {}", outputDirectory);
+            
+            context.put("outputFile", outputPath.toString());
+            context.put("outputFileName", deliveredFileName);
+            context.put("outputDirectory", outputDirectory);
+            
+            // Catat di ledger sebelum file sumber diproses, supaya tidak diambil ulang setelah restart
+            if (ledgerEntry != null) {
+                processedFileLedger.commit(ledgerEntry);
+            } else if (!sourceFingerprint.isEmpty()) {
+                processedFileLedger.commit(sourceFingerprint);
             }
             
-            if (transferSuccess) {
-                log.info("✅ File successfully transferred to: {}", outputDirectory);
+            if (sourceFilePath != null && !sourceFilePath.trim().isEmpty()) {
+                // Mode async: transfer langsung selesai, action file sumber dikerjakan worker antrian
+                if (options.asyncPostProcessing() && sourceFileActionQueue.enqueue(
+                        sourceFilePath, processedAction, originalFileName, renameTo, moveTo, sourceDirectory,
+                        sourceFingerprint)) {
+                    return true;
+                }
                 
-                if (sourceFilePath != null && !sourceFilePath.trim().isEmpty()) {
-                    log.info("🔄 Starting SOURCE FILE processing with action: {}", processedAction);
-                    boolean sourceProcessed = processSourceFile(
-                        sourceFilePath, 
-                        processedAction, 
-                        originalFileName, 
-                        renameTo, 
-                        moveTo,
-                        sourceDirectory
-                    );
-                    
-                    if (sourceProcessed) {
-                        log.info("🎯 Source file processing COMPLETED successfully with action: {}", processedAction);
-                    } else {
-                        log.error("❌ Source file processing FAILED with action: {}", processedAction);
-                    }
+                log.info("🔄 Starting SOURCE FILE processing with action: {}", processedAction);
+                boolean sourceProcessed = sourceFileProcessor.processSourceFile(
+                    sourceFilePath, 
+                    processedAction, 
+                    originalFileName, 
+                    renameTo, 
+                    moveTo,
+                    sourceDirectory,
+                    INLINE_REMOVE_ATTEMPTS
+                );
+                
+                if (sourceProcessed) {
+                    log.info("🎯 Source file processing COMPLETED successfully with action: {}", processedAction);
                 } else {
-                    log.warn("⚠️ No source file path available, skipping source file processing");
+                    log.error("❌ Source file processing FAILED with action: {}", processedAction);
                 }
-                
-                return true;
             } else {
-                log.error("❌ File transfer failed - skipping source file processing");
-                return false;
+                log.warn("⚠️ No source file path available, skipping source file processing");
             }
             
-        } catch (Exception e) {
-            log.error("❌ File Receiver execution failed [{}]: {}", componentLabel, e.getMessage(), e);
+            return true;
+        } else {
+            log.error("❌ File transfer failed - skipping source file processing");
+            if (!sourceFingerprint.isEmpty()) {
+                processedFileLedger.release(sourceFingerprint);
+            }
+            return false;
+        }
+    }
+    
+    // ✅ Batch: setiap file dikirim dengan context sendiri, dikerjakan paralel oleh beberapa worker
+    @SuppressWarnings("unchecked")
+    private boolean processBatch(ExecutionContext context, String outputDirectory, DeliveryOptions options) {
+        List<FileTransferItem> batch = (List<FileTransferItem>) context.get("fileBatch");
+        int parallelism = context.contains("batchParallelism") ? (Integer) context.get("batchParallelism") : 1;
+        // Retry step: item yang sudah terkirim (dan file sumbernya sudah diproses) tidak dikirim ulang
+        List<FileTransferItem> pending = batch.stream().filter(item -> !item.isSuccess()).toList();
+        int workers = Math.max(1, Math.min(parallelism, pending.size()));
+        
+        if (pending.size() < batch.size()) {
+            log.info("📥 Retrying {} of {} batch files with {} workers ({} already delivered)", 
+                    pending.size(), batch.size(), workers, batch.size() - pending.size());
+        } else {
+            log.info("📥 Receiving batch of {} files with {} workers", batch.size(), workers);
+        }
+        
+        Queue<FileTransferItem> queue = new ConcurrentLinkedQueue<>(pending);
+        Runnable worker = () -> {
+            FileTransferItem item;
+            while ((item = queue.poll()) != null) {
+                deliverBatchItem(context, item, outputDirectory, options);
+            }
+        };
+        
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (int i = 1; i < workers; i++) {
+            futures.add(CompletableFuture.runAsync(worker, fileTransferExecutor));
+        }
+        worker.run();
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+        
+        long transferred = batch.stream().filter(FileTransferItem::isSuccess).count();
+        long failed = batch.size() - transferred;
+        
+        context.put("filesTransferred", (int) transferred);
+        context.put("filesFailed", (int) failed);
+        context.put("recordsProcessed", (int) transferred);
+        context.put("outputDirectory", outputDirectory);
+        
+        if (failed > 0) {
+            String failedFiles = batch.stream()
+                    .filter(item -> !item.isSuccess())
+                    .map(FileTransferItem::getFileName)
+                    .collect(Collectors.joining(", "));
+            context.put("lastError", "Failed to transfer " + failed + " of " + batch.size() + " files: " + failedFiles);
+            log.error("❌ Batch transfer completed with {} successes and {} failures", transferred, failed);
             return false;
         }
+        
+        log.info("✅ Batch transfer completed: {} files delivered to {}", transferred, outputDirectory);
+        return true;
+    }
+    
+    private void deliverBatchItem(ExecutionContext context, FileTransferItem item, String outputDirectory,
+                                  DeliveryOptions options) {
+        ExecutionContext itemContext = new ExecutionContext();
+        for (String key : BATCH_SHARED_KEYS) {
+            if (context.contains(key)) {
+                itemContext.put(key, context.get(key));
+            }
+        }
+        itemContext.put("sourceFile", item.getSourceFile());
+        itemContext.put("fileName", item.getFileName());
+        itemContext.put("fileSize", item.getFileSize());
+        if (item.getFingerprint() != null) {
+            itemContext.put("sourceFingerprint", item.getFingerprint());
+        }
+        if (item.getLedgerEntry() != null) {
+            itemContext.put("sourceLedgerEntry", item.getLedgerEntry());
+        }
+        if (item.getFileContent() != null) {
+            itemContext.put("fileContent", item.getFileContent());
+        }
+        if (item.getPayloadFile() != null) {
+            itemContext.put("payloadFile", item.getPayloadFile());
+            itemContext.put("payloadFileName", item.getPayloadFileName());
+            if (item.getPayloadChecksum() != null) {
+                itemContext.put("payloadChecksum", item.getPayloadChecksum());
+                itemContext.put("payloadChecksumAlgorithm", item.getPayloadChecksumAlgorithm());
+            }
+        }
+        
+        try {
+            boolean success = deliverFile(itemContext, outputDirectory, options);
+            item.setSuccess(success);
+            if (success) {
+                item.setOutputFile((String) itemContext.get("outputFile"));
+                item.setChecksum((String) itemContext.get("fileChecksum"));
+                item.setChecksumAlgorithm((String) itemContext.get("checksumAlgorithm"));
+                item.setErrorMessage(null);
+                // Isi file baru dilepas setelah terkirim; item gagal tetap membawa isinya untuk retry step
+                item.setFileContent(null);
+            } else {
+                item.setErrorMessage("Transfer failed");
+            }
+        } catch (Exception e) {
+            log.error("❌ Batch item {} failed: {}", item.getFileName(), e.getMessage());
+            if (item.getFingerprint() != null) {
+                processedFileLedger.release(item.getFingerprint());
+            }
+            item.setSuccess(false);
+            item.setErrorMessage(e.getMessage());
+        }
     }
     
     // ✅ PERBAIKAN: Gunakan instanceof pattern matching (Java 16+)
@@ -119,248 +398,240 @@ public class FileReceiverHandler implements ComponentHandler {
         }
     }
     
-    private boolean processFileTransfer(byte[] fileContent, String originalFileName, 
-                                      String outputDirectory, ExecutionContext context) {
+    // Nama temp tersembunyi di direktori tujuan (filesystem sama, sehingga rename bisa atomic)
+    private Path stagingPath(Path outputPath) {
+        String tempName = "." + outputPath.getFileName() + "." + UUID.randomUUID().toString().substring(0, 8) + ".part";
+        return outputPath.resolveSibling(tempName);
+    }
+    
+    private void deleteTempFile(Path tempPath) {
         try {
-            Path outputDir = Paths.get(outputDirectory);
-            Files.createDirectories(outputDir);
-            
-            String outputFileName = originalFileName;
-            Path outputPath = outputDir.resolve(outputFileName);
-            
-            log.info("💾 Writing file to destination: {}", outputPath);
-            
-            if (Files.exists(outputPath)) {
-                log.warn("⚠️ File already exists in destination: {}, will overwrite", outputPath);
-            }
-            
-            Files.write(outputPath, fileContent, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
-            
-            if (Files.exists(outputPath)) {
-                long writtenSize = Files.size(outputPath);
-                if (writtenSize == fileContent.length) {
-                    log.info("✅ File written successfully to destination: {} ({} bytes)", outputFileName, writtenSize);
-                    
-                    context.put("outputFile", outputPath.toString());
-                    context.put("outputFileName", outputFileName);
-                    context.put("outputDirectory", outputDirectory);
-                    
-                    return true;
-                } else {
-                    log.error("❌ File size mismatch: expected {} bytes, got {}", 
-                             fileContent.length, writtenSize);
-                    return false;
-                }
-            } else {
-                log.error("❌ File not found after writing: {}", outputPath);
-                return false;
-            }
-            
+            Files.deleteIfExists(tempPath);
         } catch (Exception e) {
-            log.error("❌ Error transferring file to destination: {}", e.getMessage(), e);
-            return false;
+            log.warn("⚠️ Failed to delete temp file {}: {}", tempPath, e.getMessage());
         }
     }
     
-    private boolean processSourceFile(String sourceFilePath, String processedAction, 
-                                    String originalFileName, String renameTo, String moveTo,
-                                    String sourceDirectory) {
-        if (sourceFilePath == null || sourceFilePath.trim().isEmpty()) {
-            log.warn("⚠️ No source file path available for processing");
+    private boolean processFileTransfer(byte[] fileContent, Path outputPath, StreamingChecksum checksum) 
+            throws IOException {
+        log.info("💾 Writing file to destination: {}", outputPath);
+        
+        if (checksum != null) {
+            checksum.update(fileContent, 0, fileContent.length);
+        }
+        
+        Files.write(outputPath, fileContent, StandardOpenOption.CREATE, 
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        
+        long writtenSize = Files.size(outputPath);
+        if (writtenSize != fileContent.length) {
+            log.error("❌ File size mismatch: expected {} bytes, got {}", fileContent.length, writtenSize);
             return false;
         }
         
-        try {
-            Path sourcePath = Paths.get(sourceFilePath);
-            
-            if (!Files.exists(sourcePath)) {
-                log.warn("⚠️ Source file not found: {} - may have been already processed", sourceFilePath);
-                return true;
-            }
-            
-            String action = (processedAction != null && !processedAction.isEmpty()) ? 
-                           processedAction.toLowerCase().trim() : "remove";
-            
-            log.info("🛠️ Processing SOURCE file: {} with action: '{}'", sourcePath.getFileName(), action);
-            
-            boolean success = false;
-            
-            switch (action) {
-                case "remove":
-                    success = performRemoveAction(sourcePath);
-                    break;
-                    
-                case "rename":
-                    success = performRenameAction(sourcePath, originalFileName, renameTo);
-                    break;
-                    
-                case "move":
-                    success = performMoveAction(sourcePath, originalFileName, moveTo, sourceDirectory);
-                    break;
-                    
-                default:
-                    log.warn("⚠️ Unknown processedAction: '{}', defaulting to remove", processedAction);
-                    success = performRemoveAction(sourcePath);
-                    break;
-            }
-            
-            if (success) {
-                log.info("✅ Source file processing SUCCESSFUL with action: {}", action);
-            } else {
-                log.error("❌ Source file processing FAILED with action: {}", action);
+        log.info("✅ File written successfully to destination: {} ({} bytes)", outputPath.getFileName(), writtenSize);
+        return true;
+    }
+    
+    private String payloadChecksum(ExecutionContext context, DeliveryOptions options) {
+        String algorithm = getStringFromContext(context, "payloadChecksumAlgorithm", "");
+        if (!algorithm.equals(options.checksumAlgorithm())) {
+            if (!StreamingChecksum.NONE.equals(options.checksumAlgorithm())) {
+                log.debug("⚠️ No {} checksum available for processed payload", options.checksumAlgorithm());
             }
-            
-            return success;
-            
-        } catch (Exception e) {
-            log.error("❌ Error processing source file {}: {}", sourceFilePath, e.getMessage(), e);
-            return false;
+            return null;
         }
+        return getStringFromContext(context, "payloadChecksum", null);
     }
     
-    private boolean performRemoveAction(Path sourcePath) {
+    // Sidecar: file di samping sumber (mis. data.csv.sha256) berisi hex checksum, format "checksum [nama file]"
+    private boolean verifySidecar(String sourceFilePath, String fileChecksum, boolean payloadTransfer,
+                                  DeliveryOptions options, ExecutionContext context) {
+        if (payloadTransfer) {
+            log.warn("⚠️ Sidecar verification skipped: delivered payload differs from the source file");
+            return true;
+        }
+        if (fileChecksum == null || sourceFilePath == null || sourceFilePath.isEmpty()) {
+            context.put("lastError", "Sidecar verification requires a checksum algorithm and a source file");
+            log.error("❌ Sidecar verification requires a checksum algorithm and a source file");
+            return false;
+        }
+        
+        String extension = !options.sidecarExtension().isEmpty() ? options.sidecarExtension() 
+                : StreamingChecksum.SHA256.equals(options.checksumAlgorithm()) ? ".sha256" : ".crc32c";
+        Path sidecarPath = Paths.get(sourceFilePath + extension);
+        
         try {
-            log.info("🗑️ REMOVING source file: {}", sourcePath);
-            
-            if (!Files.exists(sourcePath)) {
-                log.info("✅ Source file already removed: {}", sourcePath);
-                return true;
+            if (!Files.exists(sidecarPath)) {
+                context.put("lastError", "Checksum sidecar not found: " + sidecarPath.getFileName());
+                log.error("❌ Checksum sidecar not found: {}", sidecarPath);
+                return false;
             }
             
-            for (int i = 0; i < 5; i++) {
-                try {
-                    Files.delete(sourcePath);
-                    log.info("✅ Source file REMOVED (attempt {}): {}", i + 1, sourcePath);
-                    
-                    if (!Files.exists(sourcePath)) {
-                        log.info("✅ Source file VERIFIED AS REMOVED: {}", sourcePath);
-                        return true;
-                    } else {
-                        log.warn("⚠️ Source file still exists after deletion attempt {}: {}", i + 1, sourcePath);
-                    }
-                } catch (Exception e) {
-                    log.warn("⚠️ Remove attempt {} failed for {}: {}", i + 1, sourcePath, e.getMessage());
-                    if (i < 4) {
-                        Thread.sleep(300);
-                    }
-                }
+            String content = Files.readString(sidecarPath).trim();
+            String expected = content.isEmpty() ? "" : content.split("\\s+")[0];
+            if (!expected.equalsIgnoreCase(fileChecksum)) {
+                context.put("lastError", "Checksum mismatch for " + sidecarPath.getFileName() 
+                        + ": expected " + expected + ", got " + fileChecksum);
+                log.error("❌ Checksum mismatch: expected {} from {}, got {}", expected, sidecarPath.getFileName(), fileChecksum);
+                return false;
             }
             
-            log.error("❌ ALL REMOVE ATTEMPTS FAILED for: {}", sourcePath);
-            return false;
+            log.info("✅ Checksum verified against sidecar: {}", sidecarPath.getFileName());
+            return true;
             
-        } catch (Exception e) {
-            log.error("❌ Could not remove source file: {} - {}", sourcePath, e.getMessage());
+        } catch (IOException e) {
+            context.put("lastError", "Failed to read checksum sidecar: " + e.getMessage());
+            log.error("❌ Failed to read checksum sidecar {}: {}", sidecarPath, e.getMessage());
             return false;
         }
     }
     
-    private boolean performRenameAction(Path sourcePath, String originalFileName, String renameTo) {
+    // File staging sudah berisi hasil akhir: cukup di-rename jika satu filesystem dengan tujuan.
+    // Beda filesystem (workDirectory default = java.io.tmpdir): disalin ke writePath di sebelah tujuan,
+    // ukuran dan checksum payload diverifikasi dulu sebelum payload dihapus
+    private boolean processPayloadTransfer(Path payloadPath, Path outputPath, String expectedChecksum,
+                                           DeliveryOptions options) throws IOException {
+        log.info("💾 Moving processed payload to destination: {}", outputPath);
+        
         try {
-            log.info("📝 RENAMING source file: {} with pattern: '{}'", sourcePath, renameTo);
-            
-            Path sourceDir = sourcePath.getParent();
-            String newFileName = generateNewFileName(originalFileName, renameTo);
-            Path newPath = sourceDir.resolve(newFileName);
-            
-            log.info("🔧 Renaming source: {} → {}", sourcePath.getFileName(), newFileName);
-            
-            if (Files.exists(newPath)) {
-                log.warn("⚠️ Rename target already exists: {}, will overwrite", newPath);
+            Files.move(payloadPath, outputPath, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            log.info("📦 Payload is on another filesystem, copying with verification: {}", payloadPath);
+            StreamingChecksum verification = expectedChecksum != null 
+                    ? StreamingChecksum.of(options.checksumAlgorithm()) : null;
+            if (!processStreamTransfer(payloadPath.toString(), outputPath, verification)) {
+                return false;
             }
-            
-            Files.move(sourcePath, newPath, StandardCopyOption.REPLACE_EXISTING);
-            
-            if (Files.exists(newPath) && !Files.exists(sourcePath)) {
-                log.info("✅ Source file VERIFIED AS RENAMED: {} → {}", originalFileName, newFileName);
-                return true;
-            } else {
-                log.error("❌ Rename verification FAILED for: {}", originalFileName);
+            if (verification != null && !verification.hex().equalsIgnoreCase(expectedChecksum)) {
+                log.error("❌ Payload copy checksum mismatch: expected {}, got {}", expectedChecksum, verification.hex());
+                deleteTempFile(outputPath);
                 return false;
             }
-            
-        } catch (Exception e) {
-            log.error("❌ Could not rename source file {}: {}", sourcePath, e.getMessage());
-            return false;
+            deleteTempFile(payloadPath);
         }
+        
+        log.info("✅ Payload delivered to destination: {} ({} bytes)", outputPath.getFileName(), Files.size(outputPath));
+        return true;
     }
     
-    private boolean performMoveAction(Path sourcePath, String originalFileName, String moveTo, String sourceDirectory) {
-        try {
-            log.info("📦 MOVING source file: {} to: '{}'", sourcePath, moveTo);
-            
-            Path targetDir;
-            
-            if (moveTo != null && !moveTo.trim().isEmpty()) {
-                if (Paths.get(moveTo).isAbsolute()) {
-                    targetDir = Paths.get(moveTo);
-                    log.info("📍 Using absolute path for move: {}", targetDir);
-                } else {
-                    Path baseDir = (sourceDirectory != null && !sourceDirectory.isEmpty()) ? 
-                                  Paths.get(sourceDirectory) : sourcePath.getParent();
-                    targetDir = baseDir.resolve(moveTo);
-                    log.info("📍 Using relative path for move: {} (base: {})", targetDir, baseDir);
+    // Tanpa checksum: zero-copy lewat transferTo. Dengan checksum: copy via direct buffer,
+    // checksum di-update dari buffer yang sama sebelum ditulis (tetap satu kali baca)
+    private boolean processStreamTransfer(String sourceFilePath, Path outputPath, StreamingChecksum checksum) 
+            throws IOException {
+        if (sourceFilePath == null || sourceFilePath.trim().isEmpty()) {
+            log.error("❌ No source file path available for streaming transfer");
+            return false;
+        }
+        
+        log.info("💾 Streaming file to destination: {}", outputPath);
+        
+        try (FileChannel source = FileChannel.open(Paths.get(sourceFilePath), StandardOpenOption.READ);
+             FileChannel target = FileChannel.open(outputPath, StandardOpenOption.CREATE,
+                     StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            
+            long expectedSize = source.size();
+            long position = 0;
+            if (checksum == null) {
+                while (position < expectedSize) {
+                    long transferred = source.transferTo(position, expectedSize - position, target);
+                    if (transferred <= 0) {
+                        break;
+                    }
+                    position += transferred;
                 }
             } else {
-                targetDir = sourcePath.getParent().resolve("archive");
-                log.info("📍 Using default archive directory: {}", targetDir);
-            }
-            
-            log.info("🎯 Target directory for source file: {}", targetDir);
-            
-            Files.createDirectories(targetDir);
-            
-            String newFileName = generateNewFileName(originalFileName, "");
-            Path newPath = targetDir.resolve(newFileName);
-            
-            log.info("🚚 Moving source file: {} → {}", sourcePath.getFileName(), newPath);
-            
-            if (Files.exists(newPath)) {
-                log.warn("⚠️ Move target already exists: {}, will overwrite", newPath);
+                ByteBuffer buffer = ByteBuffer.allocateDirect(COPY_BUFFER_SIZE);
+                int read;
+                while (position < expectedSize && (read = source.read(buffer)) != -1) {
+                    buffer.flip();
+                    checksum.update(buffer);
+                    while (buffer.hasRemaining()) {
+                        target.write(buffer);
+                    }
+                    buffer.clear();
+                    position += read;
+                }
             }
             
-            Files.move(sourcePath, newPath, StandardCopyOption.REPLACE_EXISTING);
-            
-            if (Files.exists(newPath) && !Files.exists(sourcePath)) {
-                log.info("✅ Source file VERIFIED AS MOVED: {} → {}", originalFileName, newPath);
-                return true;
-            } else {
-                log.error("❌ Move verification FAILED for: {}", originalFileName);
+            long writtenSize = target.size();
+            if (position != expectedSize || writtenSize != expectedSize) {
+                log.error("❌ File size mismatch: expected {} bytes, got {}", expectedSize, writtenSize);
                 return false;
             }
             
-        } catch (Exception e) {
-            log.error("❌ Could not move source file {}: {}", sourcePath, e.getMessage());
-            return false;
+            log.info("✅ File streamed successfully to destination: {} ({} bytes)", outputPath.getFileName(), writtenSize);
         }
+        
+        return true;
     }
     
-    private String generateNewFileName(String originalFileName, String renameTo) {
-        if (renameTo == null || renameTo.trim().isEmpty()) {
-            String timestamp = LocalDateTime.now().format(dateFormatter);
-            return "processed_" + timestamp + "_" + originalFileName;
+    // Mode "chunked": sama dengan stream transfer, ditambah CRC32 per chunk di context (chunkChecksums).
+    // Tidak memakai MappedByteBuffer karena mapping baru dilepas saat GC.
+    private boolean processChunkedTransfer(String sourceFilePath, Path outputPath, long chunkSize, 
+                                        StreamingChecksum checksum, ExecutionContext context) throws IOException {
+        if (sourceFilePath == null || sourceFilePath.trim().isEmpty()) {
+            log.error("❌ No source file path available for chunked transfer");
+            return false;
         }
         
-        String extension = "";
-        String fileNameWithoutExtension = originalFileName;
-        int lastDotIndex = originalFileName.lastIndexOf('.');
-        if (lastDotIndex > 0) {
-            extension = originalFileName.substring(lastDotIndex);
-            fileNameWithoutExtension = originalFileName.substring(0, lastDotIndex);
-        }
+        log.info("💾 Chunked transfer to destination: {} (chunk size: {} bytes)", outputPath, chunkSize);
         
-        String newFileName = renameTo
-                .replace("{timestamp}", LocalDateTime.now().format(dateFormatter))
-                .replace("{original}", fileNameWithoutExtension)
-                .replace("{date}", LocalDateTime.now().format(dateOnlyFormatter))
-                .replace("{time}", LocalDateTime.now().format(timeOnlyFormatter))
-                .replace("{datetime}", LocalDateTime.now().format(dateFormatter));
+        List<String> chunkChecksums = new ArrayList<>();
         
-        if (!newFileName.contains(".") && !extension.isEmpty()) {
-            newFileName += extension;
+        try (FileChannel source = FileChannel.open(Paths.get(sourceFilePath), StandardOpenOption.READ);
+             FileChannel target = FileChannel.open(outputPath, StandardOpenOption.CREATE,
+                     StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            
+            long expectedSize = source.size();
+            long position = 0;
+            ByteBuffer buffer = ByteBuffer.allocateDirect((int) Math.min(COPY_BUFFER_SIZE, chunkSize));
+            
+            while (position < expectedSize) {
+                long chunkEnd = position + Math.min(chunkSize, expectedSize - position);
+                long chunkStart = position;
+                CRC32 chunkChecksum = new CRC32();
+                
+                while (position < chunkEnd) {
+                    buffer.clear();
+                    buffer.limit((int) Math.min(buffer.capacity(), chunkEnd - position));
+                    int read = source.read(buffer, position);
+                    if (read <= 0) {
+                        break;
+                    }
+                    buffer.flip();
+                    chunkChecksum.update(buffer.duplicate());
+                    if (checksum != null) {
+                        checksum.update(buffer);
+                    }
+                    while (buffer.hasRemaining()) {
+                        target.write(buffer);
+                    }
+                    position += read;
+                }
+                
+                if (position < chunkEnd) {
+                    // Source terpotong saat disalin; size check di bawah menggagalkan transfer
+                    break;
+                }
+                
+                chunkChecksums.add(Long.toHexString(chunkChecksum.getValue()));
+                log.debug("📦 Chunk {} written ({} bytes, crc32: {})", 
+                         chunkChecksums.size(), chunkEnd - chunkStart, chunkChecksums.get(chunkChecksums.size() - 1));
+            }
+            
+            long writtenSize = target.size();
+            if (position != expectedSize || writtenSize != expectedSize) {
+                log.error("❌ File size mismatch: expected {} bytes, got {}", expectedSize, writtenSize);
+                return false;
+            }
+            
+            log.info("✅ File written successfully in {} chunks: {} ({} bytes)", 
+                    chunkChecksums.size(), outputPath.getFileName(), writtenSize);
         }
         
-        log.info("🔧 Generated new filename for source: '{}' from pattern: '{}'", newFileName, renameTo);
-        return newFileName;
+        context.put("chunkChecksums", chunkChecksums);
+        
+        return true;
     }
-}
\ No newline at end of file
+}
@@ -3,88 +3,189 @@ package com.uncal.bpm_backend.service;
 import java.nio.file.FileSystems;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.PathMatcher;
 import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.stream.Collectors;
 
 import org.json.JSONObject;
 import org.springframework.stereotype.Component;
 
+import com.uncal.bpm_backend.model.ProcessedFile;
+import com.uncal.bpm_backend.service.DirectoryScanner.ScannedFile;
+import com.uncal.bpm_backend.util.StripedLock;
+
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
 @Component
+@RequiredArgsConstructor
 @Slf4j
 public class FileSenderHandler implements ComponentHandler {
     
-    private final ConcurrentHashMap<String, Long> processedFiles = new ConcurrentHashMap<>();
-    private static final long PROCESSED_FILE_TTL = 5 * 60 * 1000;
-    private final Object directoryLock = new Object();
+    private final ProcessedFileLedger processedFileLedger;
+    
+    private static final int DEFAULT_CHUNK_SIZE_MB = 64;
+    private static final long DEFAULT_QUIET_PERIOD_MS = 1000;
+    // Kandidat tambahan di luar batchSize, untuk file yang ternyata belum stabil atau sudah tercatat di ledger
+    private static final int SCAN_HEADROOM = 32;
+    
+    private final FileStabilityTracker stabilityTracker = new FileStabilityTracker();
+    
+    private record ClaimedFile(ScannedFile file, ProcessedFile claim) {}
+    
+    // Config File Sender yang sudah di-parse, termasuk glob matcher yang sudah dikompilasi
+    private record SenderSettings(String directory, String filePattern, PathMatcher matcher, String encoding,
+                                  String processedAction, String transferMode, int chunkSizeMb, int batchSize,
+                                  int parallelism, boolean useContentHash, long quietPeriodMs,
+                                  String renameTo, String moveTo) {}
+    // Lock per direktori: scenario pada direktori berbeda tidak saling menunggu
+    private final StripedLock directoryLocks = new StripedLock(64);
     
     @Override
     public String getComponentType() {
         return "Sender";
     }
     
+    @Override
+    public String getComponentSubtype() {
+        return "file-sender";
+    }
+    
+    @Override
+    public Object compileConfig(JSONObject config) {
+        return parseSettings(config);
+    }
+    
+    // "mapped" adalah nama lama mode "chunked"; tidak pernah memakai memory-mapping, jadi dipetakan ulang
+    private String normalizeTransferMode(String transferMode) {
+        String mode = transferMode.toLowerCase().trim();
+        if ("mapped".equals(mode)) {
+            log.warn("⚠️ transferMode \"mapped\" is deprecated, using \"chunked\" (stream copy with per-chunk CRC32)");
+            return "chunked";
+        }
+        return mode;
+    }
+    
+    private SenderSettings parseSettings(JSONObject config) {
+        String filePattern = config.optString("filePattern", "*");
+        return new SenderSettings(
+                config.optString("directory", ""),
+                filePattern,
+                FileSystems.getDefault().getPathMatcher("glob:" + filePattern),
+                config.optString("encoding", "UTF-8"),
+                config.optString("processedAction", "remove"),
+                // "memory" = isi file dibaca ke context, "stream"/"chunked" = hanya path yang diteruskan ke Receiver
+                normalizeTransferMode(config.optString("transferMode", "memory")),
+                config.optInt("chunkSizeMb", DEFAULT_CHUNK_SIZE_MB),
+                // Batch: ambil sampai batchSize file per eksekusi, dikirim Receiver dengan paralelisme tertentu
+                Math.max(1, config.optInt("batchSize", 1)),
+                Math.max(1, config.optInt("parallelism", 1)),
+                // Opsional: simpan SHA-256 isi file di ledger dan lewati file dengan isi yang sudah pernah dikirim
+                config.optBoolean("ledgerContentHash", false),
+                // File dianggap siap jika ukuran & mtime tidak berubah selama quiet period ini
+                Math.max(0, config.optLong("stabilityQuietPeriodMs", DEFAULT_QUIET_PERIOD_MS)),
+                // ✅ Ambil renameTo dan moveTo dari konfigurasi JSON
+                config.optString("renameTo", ""),
+                config.optString("moveTo", ""));
+    }
+    
     @Override
     public boolean execute(ComponentExecutionData componentData, ExecutionContext context) {
         String componentLabel = componentData.getLabel();
         
         try {
-            JSONObject config = componentData.getConfigData();
-            String directory = config.optString("directory", "");
-            String filePattern = config.optString("filePattern", "*");
-            String encoding = config.optString("encoding", "UTF-8");
-            String processedAction = config.optString("processedAction", "remove");
-            
-            // ✅ Ambil renameTo dan moveTo dari konfigurasi JSON
-            String renameTo = config.optString("renameTo", "");
-            String moveTo = config.optString("moveTo", "");
+            // Config sudah di-parse saat plan scenario dikompilasi; parse di sini hanya jika dipanggil tanpa plan
+            SenderSettings settings = componentData.getCompiledConfig() instanceof SenderSettings compiled
+                    ? compiled : parseSettings(componentData.getConfigData());
+            String directory = settings.directory();
+            String filePattern = settings.filePattern();
+            String encoding = settings.encoding();
+            String processedAction = settings.processedAction();
+            String transferMode = settings.transferMode();
+            int chunkSizeMb = settings.chunkSizeMb();
+            int batchSize = settings.batchSize();
+            int parallelism = settings.parallelism();
+            boolean useContentHash = settings.useContentHash();
+            long quietPeriodMs = settings.quietPeriodMs();
+            String renameTo = settings.renameTo();
+            String moveTo = settings.moveTo();
             
-            log.info("📁 File Sender [{}] - Directory: {}, Pattern: {}, Action: {}, RenameTo: {}, MoveTo: {}", 
-                    componentLabel, directory, filePattern, processedAction, renameTo, moveTo);
+            log.info("📁 File Sender [{}] - Directory: {}, Pattern: {}, Action: {}, RenameTo: {}, MoveTo: {}, Mode: {}", 
+                    componentLabel, directory, filePattern, processedAction, renameTo, moveTo, transferMode);
             
             if (directory.isEmpty()) {
                 log.error("❌ Invalid configuration for File Sender: directory is empty");
                 return false;
             }
             
-            synchronized (directoryLock) {
-                List<java.io.File> files = findMatchingFiles(directory, filePattern);
+            ReentrantLock directoryLock = directoryLocks.get(Paths.get(directory));
+            directoryLock.lock();
+            try {
+                List<ScannedFile> files = findMatchingFiles(directory, settings.matcher(), batchSize + SCAN_HEADROOM);
                 
-                List<java.io.File> newFiles = files.stream()
+                List<ScannedFile> newFiles = files.stream()
                         .filter(file -> !isAlreadyProcessed(file))
                         .collect(Collectors.toList());
                 
                 if (newFiles.isEmpty()) {
                     log.info("📭 No new files found matching pattern: {} in directory: {}", filePattern, directory);
-                    cleanupProcessedFiles();
                     return false;
                 }
                 
-                java.io.File file = newFiles.get(0);
-                log.info("📄 Reading file: {} ({} bytes)", file.getName(), file.length());
+                List<ClaimedFile> claimed = claimReadyFiles(newFiles, batchSize, quietPeriodMs, useContentHash, context);
                 
-                byte[] fileContent = readFileAsBytes(file);
+                if (claimed.isEmpty()) {
+                    log.info("📭 No stable unclaimed files available in directory: {}", directory);
+                    return false;
+                }
+                
+                boolean readContent = !"stream".equals(transferMode) && !"chunked".equals(transferMode);
                 
                 // ✅ PERBAIKAN: HANYA pass konfigurasi ke context - TIDAK memproses file sumber di sini
-                context.put("sourceFile", file.getAbsolutePath());
-                context.put("fileName", file.getName());
-                context.put("fileSize", file.length());
-                context.put("fileContent", fileContent);
+                context.put("transferMode", transferMode);
+                context.put("transferChunkSize", Math.max(1, chunkSizeMb) * 1024L * 1024L);
                 context.put("fileEncoding", encoding);
                 context.put("processedAction", processedAction);
                 context.put("renameTo", renameTo);
                 context.put("moveTo", moveTo);
                 context.put("sourceDirectory", directory);
                 
-                // ✅ Tandai sebagai processed TANPA memodifikasi file sumber
-                markAsProcessed(file);
+                if (batchSize > 1) {
+                    return handOffBatch(claimed, parallelism, readContent, context, processedAction);
+                }
+                
+                ScannedFile file = claimed.get(0).file();
+                ProcessedFile claim = claimed.get(0).claim();
+                String fileName = file.path().getFileName().toString();
                 
-                log.info("✅ File read successfully: {} ({} bytes) - Processing action '{}' will be handled by Receiver", 
-                        file.getName(), file.length(), processedAction);
+                if (readContent) {
+                    log.info("📄 Reading file: {} ({} bytes)", fileName, file.size());
+                    try {
+                        context.put("fileContent", readFileAsBytes(file));
+                    } catch (RuntimeException e) {
+                        processedFileLedger.release(claim.getFingerprint());
+                        throw e;
+                    }
+                } else {
+                    // Mode stream/chunked: isi file tidak pernah masuk heap, Receiver menyalin langsung via FileChannel
+                    log.info("📄 Handing off file for streaming transfer: {} ({} bytes)", fileName, file.size());
+                }
+                
+                context.put("sourceFile", file.path().toAbsolutePath().toString());
+                context.put("sourceFingerprint", claim.getFingerprint());
+                context.put("sourceLedgerEntry", claim);
+                context.put("fileName", fileName);
+                context.put("fileSize", file.size());
+                
+                log.info("✅ File picked up successfully: {} ({} bytes) - Processing action '{}' will be handled by Receiver", 
+                        fileName, file.size(), processedAction);
                 return true;
+            } finally {
+                directoryLock.unlock();
             }
             
         } catch (Exception e) {
@@ -93,96 +194,136 @@ public class FileSenderHandler implements ComponentHandler {
         }
     }
     
-    private List<java.io.File> findMatchingFiles(String directoryPath, String filePattern) {
-        try {
-            Path dir = Paths.get(directoryPath);
-            if (!Files.exists(dir) || !Files.isDirectory(dir)) {
-                log.error("❌ Directory does not exist: {}", directoryPath);
-                return Collections.emptyList();
+    // Ambil sampai 'limit' file yang sudah stabil dan berhasil di-claim; file yang belum stabil dicek lagi nanti
+    private List<ClaimedFile> claimReadyFiles(List<ScannedFile> newFiles, int limit, long quietPeriodMs,
+                                              boolean useContentHash, ExecutionContext context) {
+        List<ClaimedFile> claimed = new ArrayList<>();
+        long recheckMs = Long.MAX_VALUE;
+        
+        for (ScannedFile file : newFiles) {
+            if (claimed.size() >= limit) {
+                break;
             }
             
-            final java.nio.file.PathMatcher pathMatcher;
-            if (filePattern.equals("*")) {
-                pathMatcher = FileSystems.getDefault().getPathMatcher("glob:*");
-            } else {
-                pathMatcher = FileSystems.getDefault().getPathMatcher("glob:" + filePattern);
+            long remaining = stabilityTracker.remainingQuietTime(
+                    file.path(), file.size(), file.lastModified(), quietPeriodMs);
+            if (remaining > 0) {
+                log.debug("⏳ File not yet stable: {} ({}ms remaining)", file.path().getFileName(), remaining);
+                recheckMs = Math.min(recheckMs, remaining);
+                continue;
             }
             
-            return Files.list(dir)
-                    .filter(Files::isRegularFile)
-                    .filter(path -> pathMatcher.matches(path.getFileName()))
-                    .map(Path::toFile)
-                    .sorted((f1, f2) -> Long.compare(f1.lastModified(), f2.lastModified()))
-                    .collect(Collectors.toList());
-                    
-        } catch (Exception e) {
-            log.error("❌ Error finding matching files in {}: {}", directoryPath, e.getMessage());
-            return Collections.emptyList();
+            ProcessedFile claim = claimFile(file, useContentHash);
+            if (claim != null) {
+                stabilityTracker.forget(file.path());
+                claimed.add(new ClaimedFile(file, claim));
+            }
+        }
+        
+        if (recheckMs != Long.MAX_VALUE) {
+            // Dipakai ScenarioEngineService untuk menjadwalkan pengecekan ulang pada mode watch
+            context.put("stabilityRecheckMs", recheckMs);
         }
+        
+        return claimed;
     }
     
-    private byte[] readFileAsBytes(java.io.File file) {
+    private boolean handOffBatch(List<ClaimedFile> claimed, int parallelism, boolean readContent,
+                                 ExecutionContext context, String processedAction) {
+        List<FileTransferItem> batch = new ArrayList<>();
+        
+        for (ClaimedFile claimedFile : claimed) {
+            ScannedFile file = claimedFile.file();
+            try {
+                batch.add(FileTransferItem.builder()
+                        .sourceFile(file.path().toAbsolutePath().toString())
+                        .fileName(file.path().getFileName().toString())
+                        .fileSize(file.size())
+                        .fileContent(readContent ? Files.readAllBytes(file.path()) : null)
+                        .fingerprint(claimedFile.claim().getFingerprint())
+                        .ledgerEntry(claimedFile.claim())
+                        .build());
+            } catch (Exception e) {
+                processedFileLedger.release(claimedFile.claim().getFingerprint());
+                log.warn("⚠️ Skipping unreadable file in batch: {} - {}", file.path().getFileName(), e.getMessage());
+            }
+        }
+        
+        if (batch.isEmpty()) {
+            log.info("📭 No readable files available for batch");
+            return false;
+        }
+        
+        context.put("fileBatch", batch);
+        context.put("fileCount", batch.size());
+        context.put("batchParallelism", parallelism);
+        
+        log.info("✅ Claimed batch of {} files (parallelism: {}) - Processing action '{}' will be handled by Receiver", 
+                batch.size(), parallelism, processedAction);
+        return true;
+    }
+    
+    // Hanya K file tertua yang dipilih; filter ledger di sini cukup cek memory, cek database menyusul untuk K file saja
+    private List<ScannedFile> findMatchingFiles(String directoryPath, PathMatcher pathMatcher, int limit) {
         try {
-            if (!isFileStable(file)) {
-                throw new RuntimeException("File is still being written or unstable: " + file.getName());
+            Path dir = Paths.get(directoryPath);
+            if (!Files.isDirectory(dir)) {
+                log.error("❌ Directory does not exist: {}", directoryPath);
+                return Collections.emptyList();
             }
             
-            return Files.readAllBytes(file.toPath());
+            return DirectoryScanner.scanOldest(dir, pathMatcher, limit, 
+                    file -> !processedFileLedger.isKnownProcessed(
+                            processedFileLedger.fingerprint(file.path(), file.size(), file.lastModified())));
+                    
         } catch (Exception e) {
-            throw new RuntimeException("Failed to read file: " + file.getName(), e);
+            log.error("❌ Error finding matching files in {}: {}", directoryPath, e.getMessage());
+            return Collections.emptyList();
         }
     }
     
-    private boolean isFileStable(java.io.File file) {
+    private byte[] readFileAsBytes(ScannedFile file) {
         try {
-            long size1 = file.length();
-            Thread.sleep(50);
-            long size2 = file.length();
-            Thread.sleep(50);
-            long size3 = file.length();
-            
-            boolean isStable = (size1 == size2) && (size2 == size3);
-            if (!isStable) {
-                log.warn("⚠️ File is unstable: {} (sizes: {}, {}, {})", 
-                        file.getName(), size1, size2, size3);
-            }
-            return isStable;
+            return Files.readAllBytes(file.path());
         } catch (Exception e) {
-            log.warn("⚠️ Error checking file stability: {}", file.getName(), e);
-            return false;
+            throw new RuntimeException("Failed to read file: " + file.path().getFileName(), e);
         }
     }
     
-    private boolean isAlreadyProcessed(java.io.File file) {
-        String fileKey = file.getAbsolutePath();
-        Long processedTime = processedFiles.get(fileKey);
-        
-        if (processedTime != null) {
-            if (System.currentTimeMillis() - processedTime < PROCESSED_FILE_TTL) {
-                log.debug("⏭️ Skipping already processed file: {}", file.getName());
-                return true;
-            } else {
-                processedFiles.remove(fileKey);
-            }
+    private boolean isAlreadyProcessed(ScannedFile file) {
+        String fingerprint = processedFileLedger.fingerprint(file.path(), file.size(), file.lastModified());
+        if (processedFileLedger.isProcessed(fingerprint)) {
+            log.debug("⏭️ Skipping already processed file: {}", file.path().getFileName());
+            return true;
         }
         return false;
     }
     
-    private void markAsProcessed(java.io.File file) {
-        String fileKey = file.getAbsolutePath();
-        processedFiles.put(fileKey, System.currentTimeMillis());
-        log.debug("🔖 Marked file as processed: {}", file.getName());
-    }
-    
-    private void cleanupProcessedFiles() {
-        long currentTime = System.currentTimeMillis();
-        processedFiles.entrySet().removeIf(entry -> 
-            currentTime - entry.getValue() > PROCESSED_FILE_TTL
-        );
+    // Claim file di ledger; null jika file sudah di-claim scenario lain atau isinya sudah pernah dikirim
+    private ProcessedFile claimFile(ScannedFile file, boolean useContentHash) {
+        String contentHash = useContentHash ? processedFileLedger.contentHash(file.path()) : null;
+        ProcessedFile entry = processedFileLedger.createEntry(file.path(), file.size(), file.lastModified(), contentHash);
+        
+        if (contentHash != null && processedFileLedger.isContentProcessed(contentHash, entry.getScope())) {
+            // File dibiarkan di tempat (tidak dikirim, tidak diproses action) - dicatat supaya tidak dicek ulang
+            log.warn("⏭️ Skipping file whose content was already delivered from this directory, left in place: {}", 
+                    file.path());
+            processedFileLedger.record(entry);
+            return null;
+        }
+        
+        if (!processedFileLedger.claim(entry)) {
+            log.debug("⏭️ File already claimed: {}", file.path().getFileName());
+            return null;
+        }
+        
+        log.debug("🔖 Claimed file: {}", file.path().getFileName());
+        return entry;
     }
     
     public void clearProcessedFiles() {
-        processedFiles.clear();
+        processedFileLedger.clearCache();
+        stabilityTracker.clear();
         log.info("🧹 Cleared processed files cache");
     }
 }
\ No newline at end of file
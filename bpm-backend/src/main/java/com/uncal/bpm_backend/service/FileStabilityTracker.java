@@ -0,0 +1,67 @@
+package com.uncal.bpm_backend.service;
+
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Melacak ukuran dan waktu modifikasi file antar scan (atau antar event watch).
+ * File dianggap siap setelah tidak berubah selama quiet period, tanpa Thread.sleep. Quiet period selalu dihitung
+ * dari saat file pertama kali terlihat (bukan dari mtime, yang bisa dipertahankan oleh cp -p/rsync/unzip atau
+ * tertinggal di network filesystem), dan file baru dilepas oleh observasi berikutnya yang tidak berubah.
+ */
+public class FileStabilityTracker {
+
+    private static final long FORGET_AFTER = 60 * 60 * 1000;
+    private static final long PURGE_INTERVAL = 60 * 1000;
+
+    private record Snapshot(long size, long lastModified, long stableSince, long lastSeen) {}
+
+    private final Map<String, Snapshot> snapshots = new ConcurrentHashMap<>();
+    private volatile long lastPurge = System.currentTimeMillis();
+
+    /**
+     * Mengembalikan sisa waktu (ms) sebelum file dianggap stabil; 0 berarti file siap diambil.
+     * Observasi pertama tidak pernah mengembalikan 0 kecuali quiet period dimatikan (<= 0).
+     */
+    public long remainingQuietTime(Path path, long size, long lastModified, long quietPeriodMs) {
+        long now = System.currentTimeMillis();
+        String key = path.toAbsolutePath().normalize().toString();
+
+        Snapshot previous = snapshots.get(key);
+        long stableSince;
+        if (previous == null) {
+            // Belum pernah terlihat: ukuran/mtime belum bisa dibandingkan, quiet period mulai sekarang
+            stableSince = now;
+        } else if (previous.size() != size || previous.lastModified() != lastModified) {
+            stableSince = now;
+        } else {
+            stableSince = previous.stableSince();
+        }
+
+        snapshots.put(key, new Snapshot(size, lastModified, stableSince, now));
+        purgeStale(now);
+
+        if (previous == null && quietPeriodMs > 0) {
+            return quietPeriodMs;
+        }
+        return Math.max(0, quietPeriodMs - (now - stableSince));
+    }
+
+    public void forget(Path path) {
+        snapshots.remove(path.toAbsolutePath().normalize().toString());
+    }
+
+    public void clear() {
+        snapshots.clear();
+    }
+
+    // File yang sudah lama tidak terlihat (dihapus/dipindah pihak lain) dibuang dari tracker
+    private void purgeStale(long now) {
+        if (now - lastPurge < PURGE_INTERVAL) {
+            return;
+        }
+        lastPurge = now;
+        snapshots.values().removeIf(snapshot -> now - snapshot.lastSeen() > FORGET_AFTER);
+    }
+}
@@ -0,0 +1,164 @@
+package com.uncal.bpm_backend.service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.springframework.stereotype.Service;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Menyelesaikan delivery atomic File Receiver: fsync file temp, rename ke nama akhir, lalu fsync direktori.
+ * Setiap writer mem-fsync file temp-nya sendiri sebelum masuk group, sehingga fsync data tetap paralel.
+ * Delivery yang masuk dalam satu window digabung (group commit): rename dan fsync direktori cukup sekali per window.
+ * Pemanggil pertama dalam window menjadi leader dan mem-flush group di thread-nya sendiri; flush tidak pernah
+ * diantrikan ke pool yang threadnya sedang menunggu hasil flush tersebut.
+ */
+@Service
+@Slf4j
+public class FileSyncCoordinator {
+
+    private record PendingCommit(Path tempFile, Path targetFile, CompletableFuture<Void> done) {}
+
+    private final ReentrantLock groupLock = new ReentrantLock();
+    private List<PendingCommit> currentGroup;
+
+    /**
+     * Memblok sampai file temp sudah durable dan sudah di-rename ke targetFile.
+     * Dengan windowMs <= 0 commit dilakukan langsung di thread pemanggil.
+     */
+    public void commit(Path tempFile, Path targetFile, long windowMs) throws IOException {
+        PendingCommit pending = new PendingCommit(tempFile, targetFile, new CompletableFuture<>());
+
+        try {
+            forceFile(tempFile);
+        } catch (IOException e) {
+            log.error("❌ Atomic commit failed for {}: {}", targetFile, e.getMessage());
+            deleteQuietly(tempFile);
+            throw e;
+        }
+
+        if (windowMs <= 0) {
+            flush(List.of(pending));
+            return;
+        }
+
+        boolean leader = false;
+        List<PendingCommit> group;
+        groupLock.lock();
+        try {
+            if (currentGroup == null) {
+                // Pemanggil pertama membuka group baru dan menjadi leader untuk window ini
+                currentGroup = new ArrayList<>();
+                leader = true;
+            }
+            group = currentGroup;
+            group.add(pending);
+        } finally {
+            groupLock.unlock();
+        }
+
+        if (leader) {
+            try {
+                Thread.sleep(windowMs);
+            } catch (InterruptedException e) {
+                // Flush tetap dijalankan sekarang supaya anggota group tidak menunggu selamanya
+                Thread.currentThread().interrupt();
+            }
+            flushGroup(group);
+        }
+
+        try {
+            pending.done().join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof IOException ioException) {
+                throw ioException;
+            }
+            throw new IOException("Failed to commit " + targetFile.getFileName(), e.getCause());
+        }
+    }
+
+    private void flushGroup(List<PendingCommit> group) {
+        groupLock.lock();
+        try {
+            if (currentGroup == group) {
+                currentGroup = null;
+            }
+        } finally {
+            groupLock.unlock();
+        }
+        try {
+            flush(group);
+        } catch (Exception e) {
+            // flush() menyelesaikan setiap future sendiri; ini hanya untuk error tak terduga
+            group.forEach(pending -> pending.done().completeExceptionally(e));
+        }
+    }
+
+    // Hanya rename + fsync direktori; isi file temp sudah di-fsync oleh masing-masing writer
+    private void flush(List<PendingCommit> group) throws IOException {
+        Set<Path> directories = new LinkedHashSet<>();
+        List<PendingCommit> renamed = new ArrayList<>();
+
+        for (PendingCommit pending : group) {
+            try {
+                Files.move(pending.tempFile(), pending.targetFile(),
+                        StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                directories.add(pending.targetFile().toAbsolutePath().getParent());
+                renamed.add(pending);
+            } catch (IOException e) {
+                log.error("❌ Atomic commit failed for {}: {}", pending.targetFile(), e.getMessage());
+                deleteQuietly(pending.tempFile());
+                pending.done().completeExceptionally(e);
+                if (group.size() == 1) {
+                    throw e;
+                }
+            }
+        }
+
+        // Rename baru durable setelah entry direktori ikut di-fsync
+        for (Path directory : directories) {
+            syncDirectory(directory);
+        }
+
+        renamed.forEach(pending -> pending.done().complete(null));
+        if (group.size() > 1) {
+            log.debug("💾 Group commit: {} files, {} directories synced", renamed.size(), directories.size());
+        }
+    }
+
+    private void forceFile(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.force(true);
+        }
+    }
+
+    private void syncDirectory(Path directory) {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException | UncheckedIOException e) {
+            // Beberapa OS (mis. Windows) tidak mengizinkan fsync direktori
+            log.debug("⚠️ Directory fsync not supported for {}: {}", directory, e.getMessage());
+        }
+    }
+
+    private void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            log.warn("⚠️ Failed to delete temp file {}: {}", path, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.uncal.bpm_backend.service;
+
+import com.uncal.bpm_backend.model.ProcessedFile;
+
+import lombok.Builder;
+import lombok.Data;
+
+/**
+ * Satu file dalam batch File Sender. Sender mengisi data sumber, Processor boleh mengisi payload,
+ * Receiver mengisi hasil pengiriman (outputFile, success, errorMessage).
+ */
+@Data
+@Builder
+public class FileTransferItem {
+    private String sourceFile;
+    private String fileName;
+    private long fileSize;
+    private byte[] fileContent;
+    private String fingerprint;
+    // Entry ledger hasil claim Sender, di-commit Receiver setelah file terkirim
+    private ProcessedFile ledgerEntry;
+
+    // Hasil stage Processor (mis. kompresi) yang dikirim Receiver menggantikan file sumber
+    private String payloadFile;
+    private String payloadFileName;
+    private String payloadChecksum;
+    private String payloadChecksumAlgorithm;
+
+    private String outputFile;
+    private String checksum;
+    private String checksumAlgorithm;
+    private boolean success;
+    private String errorMessage;
+}
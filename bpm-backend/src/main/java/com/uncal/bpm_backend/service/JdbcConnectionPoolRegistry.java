@@ -0,0 +1,332 @@
+package com.uncal.bpm_backend.service;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Pool koneksi HikariCP per database tujuan, dipakai bersama oleh JDBC Sender dan JDBC Receiver.
+ * Pool dibuat saat pertama dipakai (key: db_type, host, port, db_name, user) dan ditutup
+ * jika tidak dipakai lagi dalam waktu tertentu. Jumlah eksekusi paralel per endpoint database
+ * dibatasi dengan semaphore, sehingga scenario ke database berbeda tetap berjalan paralel.
+ */
+@Service
+@Slf4j
+public class JdbcConnectionPoolRegistry {
+
+    @Value("${bpm.jdbc-pool.max-size:5}")
+    private int maxPoolSize;
+
+    @Value("${bpm.jdbc-pool.min-idle:0}")
+    private int minIdle;
+
+    @Value("${bpm.jdbc-pool.idle-timeout-ms:300000}")
+    private long idleTimeoutMs;
+
+    @Value("${bpm.jdbc-pool.connection-timeout-ms:10000}")
+    private long connectionTimeoutMs;
+
+    @Value("${bpm.jdbc-pool.evict-after-ms:1800000}")
+    private long evictAfterMs;
+
+    @Value("${bpm.jdbc-pool.max-concurrency:4}")
+    private int defaultMaxConcurrency;
+
+    private static final class PoolEntry {
+        private final HikariDataSource dataSource;
+        private final int passwordHash;
+        private volatile long lastUsed = System.currentTimeMillis();
+
+        private PoolEntry(HikariDataSource dataSource, int passwordHash) {
+            this.dataSource = dataSource;
+            this.passwordHash = passwordHash;
+        }
+    }
+
+    private final Map<String, PoolEntry> pools = new ConcurrentHashMap<>();
+
+    /**
+     * Satu limiter per endpoint selama aplikasi hidup. Batas dihitung ulang dari config component yang
+     * masih aktif (maxConcurrency > 0, terakhir dipakai dalam evictAfterMs): nilai terkecil berlaku, dan
+     * jika tidak ada yang mengatur dipakai default. Batas bisa naik (release) maupun turun (reducePermits)
+     * di semaphore yang sama, sehingga permit yang sedang dipakai tetap dilepas ke semaphore yang benar.
+     */
+    private static final class EndpointLimiter extends Semaphore {
+        private record Request(int limit, long lastSeen) {}
+
+        private final Map<String, Request> requests = new ConcurrentHashMap<>();
+        private int maxConcurrency;
+        private String limitedBy;
+
+        private EndpointLimiter(int maxConcurrency) {
+            super(maxConcurrency, true);
+            this.maxConcurrency = maxConcurrency;
+        }
+
+        // Mengembalikan batas sebelumnya, supaya perubahan batas bisa di-log sekali saja
+        private synchronized int update(String owner, int requested, int defaultLimit, long staleAfterMs) {
+            long now = System.currentTimeMillis();
+            if (requested > 0) {
+                requests.put(owner, new Request(requested, now));
+            } else {
+                requests.remove(owner);
+            }
+            requests.values().removeIf(request -> now - request.lastSeen() > staleAfterMs);
+
+            int limit = defaultLimit;
+            limitedBy = null;
+            for (Map.Entry<String, Request> entry : requests.entrySet()) {
+                if (limitedBy == null || entry.getValue().limit() < limit) {
+                    limit = entry.getValue().limit();
+                    limitedBy = entry.getKey();
+                }
+            }
+
+            if (limit > maxConcurrency) {
+                release(limit - maxConcurrency);
+            } else if (limit < maxConcurrency) {
+                reducePermits(maxConcurrency - limit);
+            }
+            int previous = maxConcurrency;
+            maxConcurrency = limit;
+            return previous;
+        }
+
+        private synchronized int limit() {
+            return maxConcurrency;
+        }
+
+        private synchronized String limitedBy() {
+            return limitedBy;
+        }
+    }
+
+    // Key: db_type, host, port, db_name (tanpa user) - yang dilindungi adalah server database-nya
+    private final Map<String, EndpointLimiter> limiters = new ConcurrentHashMap<>();
+
+    /**
+     * Slot eksekusi pada satu endpoint database; dilepas saat close (aman dipanggil lebih dari sekali).
+     */
+    public static final class EndpointPermit implements AutoCloseable {
+        private final Semaphore semaphore;
+        private final String endpoint;
+        private final AtomicBoolean released = new AtomicBoolean(false);
+
+        private EndpointPermit(Semaphore semaphore, String endpoint) {
+            this.semaphore = semaphore;
+            this.endpoint = endpoint;
+        }
+
+        public String getEndpoint() {
+            return endpoint;
+        }
+
+        // Dilepas sementara selama menunggu endpoint lain, lalu diambil lagi (lihat acquireAlongside)
+        private boolean reacquire(long timeoutMs) throws InterruptedException {
+            if (!semaphore.tryAcquire(timeoutMs, TimeUnit.MILLISECONDS)) {
+                return false;
+            }
+            released.set(false);
+            return true;
+        }
+
+        @Override
+        public void close() {
+            if (released.compareAndSet(false, true)) {
+                semaphore.release();
+            }
+        }
+    }
+
+    /**
+     * Menunggu slot eksekusi pada endpoint. maxConcurrency <= 0 memakai default bpm.jdbc-pool.max-concurrency.
+     * owner = identitas component (scenario + id component) yang menyumbang batas ke endpoint ini.
+     */
+    public EndpointPermit acquirePermit(String dbType, String host, int port, String dbName, String owner,
+                                        int maxConcurrency, long timeoutMs) throws InterruptedException, TimeoutException {
+        String endpoint = endpointKey(dbType, host, port, dbName);
+        EndpointLimiter limiter = limiter(endpoint, owner, maxConcurrency);
+
+        if (!limiter.tryAcquire(timeoutMs, TimeUnit.MILLISECONDS)) {
+            throw timeout(endpoint, limiter, timeoutMs);
+        }
+        return new EndpointPermit(limiter, endpoint);
+    }
+
+    /**
+     * Mengambil slot endpoint kedua sambil sudah memegang slot lain (JDBC Sender mode stream → Receiver).
+     * Slot selalu diambil berurutan menurut endpoint key; jika urutannya terbalik, slot yang dipegang dilepas
+     * selama menunggu lalu diambil lagi. Dengan begitu scenario X→Y dan Y→X tidak saling mengunci.
+     */
+    public EndpointPermit acquireAlongside(EndpointPermit held, String dbType, String host, int port, String dbName,
+                                           String owner, int maxConcurrency, long timeoutMs)
+            throws InterruptedException, TimeoutException {
+        String endpoint = endpointKey(dbType, host, port, dbName);
+        EndpointLimiter limiter = limiter(endpoint, owner, maxConcurrency);
+
+        if (held.getEndpoint().compareTo(endpoint) < 0) {
+            // Urutan sudah benar: aman menunggu sambil memegang slot yang lebih "kecil"
+            if (!limiter.tryAcquire(timeoutMs, TimeUnit.MILLISECONDS)) {
+                throw timeout(endpoint, limiter, timeoutMs);
+            }
+            return new EndpointPermit(limiter, endpoint);
+        }
+        if (limiter.tryAcquire()) {
+            return new EndpointPermit(limiter, endpoint);
+        }
+
+        log.debug("🔀 Releasing slot on {} while waiting for {}", held.getEndpoint(), endpoint);
+        held.close();
+        if (!limiter.tryAcquire(timeoutMs, TimeUnit.MILLISECONDS)) {
+            throw timeout(endpoint, limiter, timeoutMs);
+        }
+        EndpointPermit permit = new EndpointPermit(limiter, endpoint);
+        if (!held.reacquire(timeoutMs)) {
+            permit.close();
+            throw new TimeoutException("Timed out after " + timeoutMs + " ms re-acquiring a slot on " + held.getEndpoint());
+        }
+        return permit;
+    }
+
+    private EndpointLimiter limiter(String endpoint, String owner, int maxConcurrency) {
+        EndpointLimiter limiter = limiters.computeIfAbsent(endpoint, k -> new EndpointLimiter(defaultMaxConcurrency));
+        int previousLimit = limiter.update(owner, maxConcurrency, defaultMaxConcurrency, evictAfterMs);
+        if (previousLimit != limiter.limit()) {
+            String limitedBy = limiter.limitedBy();
+            log.info("⚙️ Endpoint {} concurrency limit changed {} → {} ({})", endpoint, previousLimit, limiter.limit(),
+                    limitedBy != null ? "set by " + limitedBy : "default");
+        }
+        return limiter;
+    }
+
+    private TimeoutException timeout(String endpoint, EndpointLimiter limiter, long timeoutMs) {
+        String limitedBy = limiter.limitedBy();
+        return new TimeoutException("Timed out after " + timeoutMs + " ms waiting for a free slot on " + endpoint
+                + " (max concurrency " + limiter.limit()
+                + (limitedBy != null ? ", set by " + limitedBy : "") + ")");
+    }
+
+    public String endpointKey(String dbType, String host, int port, String dbName) {
+        return dbType.toUpperCase() + "|" + host.toLowerCase() + "|" + port + "|" + dbName;
+    }
+
+    public Connection getConnection(String dbType, String host, int port, String dbName,
+                                    String username, String password) throws SQLException {
+        String key = poolKey(dbType, host, port, dbName, username);
+        int passwordHash = password.hashCode();
+
+        PoolEntry entry = pools.compute(key, (k, existing) -> {
+            if (existing != null && existing.passwordHash == passwordHash && !existing.dataSource.isClosed()) {
+                return existing;
+            }
+            if (existing != null) {
+                // Password diubah di config scenario - pool lama tidak bisa dipakai lagi
+                log.info("🔄 Recreating JDBC pool with updated credentials: {}", k);
+                existing.dataSource.close();
+            }
+            return new PoolEntry(createDataSource(k, dbType, host, port, dbName, username, password), passwordHash);
+        });
+
+        entry.lastUsed = System.currentTimeMillis();
+        return entry.dataSource.getConnection();
+    }
+
+    public String buildConnectionUrl(String dbType, String host, int port, String dbName) {
+        switch (dbType.toUpperCase()) {
+            case "POSTGRESQL":
+                return String.format("jdbc:postgresql://%s:%d/%s", host, port, dbName);
+            case "MYSQL":
+                return String.format("jdbc:mysql://%s:%d/%s", host, port, dbName);
+            case "MSSQL":
+                return String.format("jdbc:sqlserver://%s:%d;databaseName=%s", host, port, dbName);
+            case "ORACLE":
+                return String.format("jdbc:oracle:thin:@%s:%d:%s", host, port, dbName);
+            default:
+                throw new IllegalArgumentException("Unsupported database type: " + dbType);
+        }
+    }
+
+    public int getDefaultPort(String dbType) {
+        switch (dbType.toUpperCase()) {
+            case "POSTGRESQL": return 5432;
+            case "MYSQL": return 3306;
+            case "MSSQL": return 1433;
+            case "ORACLE": return 1521;
+            default: return 5432;
+        }
+    }
+
+    private HikariDataSource createDataSource(String key, String dbType, String host, int port, String dbName,
+                                              String username, String password) {
+        HikariConfig config = new HikariConfig();
+        config.setPoolName("bpm-jdbc-" + dbType.toLowerCase() + "-" + host + "-" + dbName);
+        config.setJdbcUrl(buildConnectionUrl(dbType, host, port, dbName));
+        config.setUsername(username);
+        config.setPassword(password);
+        config.setMaximumPoolSize(maxPoolSize);
+        config.setMinimumIdle(minIdle);
+        config.setIdleTimeout(idleTimeoutMs);
+        config.setConnectionTimeout(connectionTimeoutMs);
+        // Pool tetap dibuat walau database sedang down; error muncul saat getConnection
+        config.setInitializationFailTimeout(-1);
+
+        // Batch insert dikirim driver sebagai multi-row INSERT, bukan satu round-trip per baris
+        switch (dbType.toUpperCase()) {
+            case "POSTGRESQL":
+                config.addDataSourceProperty("reWriteBatchedInserts", "true");
+                break;
+            case "MYSQL":
+                config.addDataSourceProperty("rewriteBatchedStatements", "true");
+                break;
+            default:
+                break;
+        }
+
+        log.info("🏊 Created JDBC connection pool: {} (max size: {})", key, maxPoolSize);
+        return new HikariDataSource(config);
+    }
+
+    private String poolKey(String dbType, String host, int port, String dbName, String username) {
+        return dbType.toUpperCase() + "|" + host.toLowerCase() + "|" + port + "|" + dbName + "|" + username;
+    }
+
+    // Pool yang lama tidak dipakai (scenario dihentikan atau config berubah) ditutup
+    @Scheduled(fixedDelay = 60_000)
+    public void evictUnusedPools() {
+        long now = System.currentTimeMillis();
+        pools.entrySet().removeIf(entry -> {
+            PoolEntry pool = entry.getValue();
+            HikariPoolMXBean stats = pool.dataSource.getHikariPoolMXBean();
+            boolean unused = now - pool.lastUsed > evictAfterMs
+                    && (stats == null || stats.getActiveConnections() == 0);
+            if (unused) {
+                log.info("🧹 Closing unused JDBC connection pool: {}", entry.getKey());
+                pool.dataSource.close();
+            }
+            return unused;
+        });
+    }
+
+    @PreDestroy
+    public void closeAll() {
+        pools.values().forEach(pool -> pool.dataSource.close());
+        pools.clear();
+        log.info("🛑 Closed all JDBC connection pools");
+    }
+}
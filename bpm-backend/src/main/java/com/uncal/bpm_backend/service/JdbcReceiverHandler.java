@@ -1,27 +1,52 @@
 package com.uncal.bpm_backend.service;
 
+import java.nio.charset.StandardCharsets;
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HexFormat;
 import java.util.List;
-import java.util.Map;
 
 import org.json.JSONObject;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.postgresql.copy.CopyManager;
 import org.springframework.stereotype.Component;
 
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
 @Component
+@RequiredArgsConstructor
 @Slf4j
 public class JdbcReceiverHandler implements ComponentHandler {
     
-    private final Object databaseLock = new Object();
+    private final JdbcConnectionPoolRegistry connectionPoolRegistry;
+    private static final int DEFAULT_BATCH_SIZE = 1000;
+    private static final int DEFAULT_ACQUIRE_TIMEOUT_SECONDS = 60;
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
+    
+    private static final String WRITE_MODE_ROW = "row";
+    private static final String WRITE_MODE_BATCH = "batch";
+    private static final String WRITE_MODE_COPY = "copy";
+    private static final String WRITE_MODE_UPSERT = "upsert";
+    
+    // Jumlah baris berhasil/gagal dari satu proses insert
+    private record InsertResult(int successful, int failed) {}
     
     @Override
     public String getComponentType() {
         return "Receiver"; // ✅ Tetap return "Receiver" untuk compatibility
     }
     
+    @Override
+    public String getComponentSubtype() {
+        return "jdbc-receiver";
+    }
+    
     @Override
     public boolean execute(ComponentExecutionData componentData, ExecutionContext context) {
         String componentLabel = componentData.getLabel();
@@ -30,13 +55,22 @@ public class JdbcReceiverHandler implements ComponentHandler {
             JSONObject config = componentData.getConfigData();
             String dbType = config.optString("db_type", "POSTGRESQL");
             String host = config.optString("host", "localhost");
-            int port = config.optInt("port", getDefaultPort(dbType));
+            int port = config.optInt("port", connectionPoolRegistry.getDefaultPort(dbType));
             String dbName = config.optString("db_name", "");
             String schema = config.optString("schema", "");
             String username = config.optString("username", "");
             String password = config.optString("password", "");
             String targetTable = config.optString("targetTable", "");
             int retryInterval = config.optInt("retryInterval", 30);
+            // row: executeUpdate per baris (autocommit); batch: addBatch/executeBatch dengan commit per batch;
+            // copy: COPY FROM STDIN (PostgreSQL), database lain memakai batch;
+            // upsert: insert-or-update per batch berdasarkan keyColumns (ON CONFLICT / ON DUPLICATE KEY / MERGE)
+            String writeMode = resolveWriteMode(config.optString("writeMode", WRITE_MODE_ROW), dbType);
+            int batchSize = Math.max(1, config.optInt("batchSize", DEFAULT_BATCH_SIZE));
+            List<String> keyColumns = parseKeyColumns(config.optString("keyColumns", ""));
+            // Batas eksekusi paralel ke endpoint tujuan
+            int maxConcurrency = config.optInt("maxConcurrency", 0);
+            int acquireTimeoutSeconds = config.optInt("acquireTimeoutSeconds", DEFAULT_ACQUIRE_TIMEOUT_SECONDS);
             
             log.info("🗃️ JDBC Receiver [{}] - DB: {}://{}:{}/{}, Table: {}", 
                     componentLabel, dbType, host, port, dbName, targetTable);
@@ -47,22 +81,61 @@ public class JdbcReceiverHandler implements ComponentHandler {
                 return false;
             }
             
+            if (WRITE_MODE_UPSERT.equals(writeMode) && keyColumns.isEmpty()) {
+                log.error("❌ Invalid configuration for JDBC Receiver: upsert write mode requires keyColumns");
+                return false;
+            }
+            
             if (!context.contains("jdbcData")) {
                 log.error("❌ No JDBC data available in context for JDBC Receiver");
                 return false;
             }
             
-            @SuppressWarnings("unchecked")
-            List<Map<String, Object>> data = (List<Map<String, Object>>) context.get("jdbcData");
+            // Stream sudah dibaca attempt sebelumnya: jdbcData hanya chunk pertama, menulis ulang dari situ
+            // akan melaporkan sukses padahal sisa baris tidak terkirim
+            if (context.contains("jdbcStreamConsumed")) {
+                log.error("❌ Streamed source rows were already consumed by a previous attempt");
+                context.failWithoutRetry("Streamed source rows were already consumed");
+                return false;
+            }
+            
+            RowBatch data = (RowBatch) context.get("jdbcData");
             String sourceQuery = (String) context.get("sourceQuery");
             int recordCount = (Integer) context.get("recordCount");
+            // Sisa baris dari Sender mode stream, dibaca per chunk setelah chunk pertama (jdbcData)
+            JdbcRowStream stream = (JdbcRowStream) context.get("jdbcStream");
             
-            log.info("📥 Receiving {} records from query: {}", recordCount, sourceQuery);
+            log.info("📥 Receiving {} records{} from query: {}", recordCount, 
+                    stream != null ? " (first chunk, streaming)" : "", sourceQuery);
             log.info("🎯 Target table: {}", targetTable);
             
             boolean insertSuccess;
-            synchronized (databaseLock) {
-                insertSuccess = processDataInsert(data, dbType, host, port, dbName, schema, username, password, targetTable);
+            // Sender mode stream sudah memegang slot endpoint yang sama selama eksekusi ini;
+            // meminta slot kedua bisa menunggu diri sendiri jika maxConcurrency = 1
+            String endpoint = connectionPoolRegistry.endpointKey(dbType, host, port, dbName);
+            if (endpoint.equals(context.get("jdbcStreamEndpoint"))) {
+                insertSuccess = processDataInsert(data, stream, dbType, host, port, dbName, schema, username, password, 
+                                                  targetTable, writeMode, batchSize, keyColumns, context);
+            } else {
+                String owner = context.get("scenarioId") + ":" + (componentData.getRawComponentJson() != null
+                        ? componentData.getRawComponentJson().optString("id", componentLabel) : componentLabel);
+                // Slot sumber (mode stream) tidak ditahan sambil menunggu tujuan dengan urutan terbalik
+                JdbcConnectionPoolRegistry.EndpointPermit sourcePermit = context.contains("jdbcStreamPermit")
+                        ? context.get("jdbcStreamPermit", JdbcConnectionPoolRegistry.EndpointPermit.class) : null;
+                long timeoutMs = acquireTimeoutSeconds * 1000L;
+                try (JdbcConnectionPoolRegistry.EndpointPermit permit = sourcePermit != null
+                        ? connectionPoolRegistry.acquireAlongside(sourcePermit, dbType, host, port, dbName, owner,
+                                                                  maxConcurrency, timeoutMs)
+                        : connectionPoolRegistry.acquirePermit(dbType, host, port, dbName, owner, maxConcurrency, timeoutMs)) {
+                    insertSuccess = processDataInsert(data, stream, dbType, host, port, dbName, schema, username, password, 
+                                                      targetTable, writeMode, batchSize, keyColumns, context);
+                }
+            }
+            
+            if (stream != null) {
+                recordCount = (int) stream.getRowsRead();
+                stream.close();
+                context.remove("jdbcStream");
             }
             
             if (insertSuccess) {
@@ -76,101 +149,391 @@ public class JdbcReceiverHandler implements ComponentHandler {
                 return true;
             } else {
                 log.error("❌ JDBC Receiver execution failed");
+                if (context.contains("jdbcStreamConsumed")) {
+                    context.failWithoutRetry("Streamed source rows cannot be re-read");
+                }
                 return false;
             }
             
         } catch (Exception e) {
             log.error("❌ JDBC Receiver execution failed [{}]: {}", componentLabel, e.getMessage(), e);
+            if (context.contains("jdbcStreamConsumed")) {
+                context.failWithoutRetry("Streamed source rows cannot be re-read");
+            }
             return false;
         }
     }
     
-    private boolean processDataInsert(List<Map<String, Object>> data, String dbType, String host, 
+    private boolean processDataInsert(RowBatch data, JdbcRowStream stream, String dbType, String host, 
                                     int port, String dbName, String schema, String username, 
-                                    String password, String targetTable) {
+                                    String password, String targetTable, String writeMode, int batchSize,
+                                    List<String> keyColumns, ExecutionContext context) {
         if (data == null || data.isEmpty()) {
             log.warn("⚠️ No data to insert into database");
             return true;
         }
         
-        String connectionUrl = buildConnectionUrl(dbType, host, port, dbName);
+        String connectionUrl = connectionPoolRegistry.buildConnectionUrl(dbType, host, port, dbName);
         
-        try (Connection connection = DriverManager.getConnection(connectionUrl, username, password)) {
+        try (Connection connection = connectionPoolRegistry.getConnection(dbType, host, port, dbName, username, password)) {
             log.info("🔗 Connected to target database: {}", connectionUrl);
+            if (stream != null) {
+                // Mulai titik ini baris stream yang terbaca tidak bisa dibaca ulang oleh attempt berikutnya
+                context.put("jdbcStreamConsumed", true);
+            }
             
-            // Ambil sample row untuk menentukan struktur data
-            Map<String, Object> sampleRow = data.get(0);
-            String insertQuery = buildInsertQuery(targetTable, schema, sampleRow);
-            
-            log.info("💾 Insert query prepared: {}", insertQuery);
-            log.info("📊 Inserting {} records into {}", data.size(), targetTable);
-            
-            int successfulInserts = 0;
-            int failedInserts = 0;
+            // Delta incremental ditulis dalam satu transaksi: gagal sebagian = rollback semua, watermark tidak maju
+            // dan polling berikutnya (atau retry) menulis ulang delta tanpa menduplikasi baris yang sudah masuk
+            boolean deltaTransaction = context.contains("jdbcIncremental");
+            boolean autoCommit = connection.getAutoCommit();
+            if (deltaTransaction) {
+                connection.setAutoCommit(false);
+            }
+            try {
+                return writeAll(connection, data, stream, dbType, schema, targetTable, writeMode, batchSize,
+                                keyColumns, deltaTransaction, context);
+            } catch (Exception e) {
+                if (deltaTransaction) {
+                    rollbackQuietly(connection);
+                }
+                throw e;
+            } finally {
+                if (deltaTransaction) {
+                    connection.setAutoCommit(autoCommit);
+                }
+            }
             
-            try (PreparedStatement statement = connection.prepareStatement(insertQuery)) {
-                for (Map<String, Object> row : data) {
-                    try {
-                        int paramIndex = 1;
-                        for (Object value : row.values()) {
-                            statement.setObject(paramIndex++, value);
-                        }
-                        
-                        int affectedRows = statement.executeUpdate();
-                        if (affectedRows > 0) {
+        } catch (Exception e) {
+            log.error("❌ Database connection/insert failed: {}", e.getMessage(), e);
+            return false;
+        }
+    }
+    
+    private boolean writeAll(Connection connection, RowBatch data, JdbcRowStream stream, String dbType, String schema,
+                             String targetTable, String writeMode, int batchSize, List<String> keyColumns,
+                             boolean deltaTransaction, ExecutionContext context) throws SQLException {
+        // Struktur kolom diambil dari schema RowBatch (sama untuk semua chunk)
+        List<String> columns = List.of(data.schema().names());
+        String insertQuery = WRITE_MODE_UPSERT.equals(writeMode)
+                ? buildUpsertQuery(dbType, targetTable, schema, columns, resolveKeyColumns(keyColumns, data.schema()))
+                : buildInsertQuery(targetTable, schema, columns);
+        
+        log.info("💾 Insert query prepared: {}", insertQuery);
+        log.info("📊 Inserting {} records into {} (write mode: {})", data.size(), targetTable, writeMode);
+        
+        long startTime = System.nanoTime();
+        String copyQuery = buildCopyQuery(targetTable, schema, columns);
+        InsertResult result = writeChunk(connection, writeMode, insertQuery, copyQuery, data, batchSize, deltaTransaction);
+        
+        // Mode stream: chunk berikutnya baru dibaca setelah chunk sebelumnya selesai ditulis
+        if (stream != null && !(deltaTransaction && result.failed() > 0)) {
+            RowBatch chunk;
+            while (!(chunk = stream.nextChunk()).isEmpty()) {
+                InsertResult chunkResult = writeChunk(connection, writeMode, insertQuery, copyQuery, chunk, batchSize,
+                                                      deltaTransaction);
+                result = new InsertResult(result.successful() + chunkResult.successful(),
+                                          result.failed() + chunkResult.failed());
+                log.debug("📦 Streamed {} rows so far", stream.getRowsRead());
+                if (deltaTransaction && result.failed() > 0) {
+                    break;
+                }
+            }
+        }
+        double elapsedSeconds = Math.max(1e-9, (System.nanoTime() - startTime) / 1_000_000_000.0);
+        double rowsPerSecond = result.successful() / elapsedSeconds;
+        
+        context.put("rowsPerSecond", rowsPerSecond);
+        log.info("⏱️ Inserted {} rows in {} ms ({} rows/sec)", 
+                result.successful(), Math.round(elapsedSeconds * 1000), Math.round(rowsPerSecond));
+        
+        if (deltaTransaction) {
+            if (result.failed() > 0) {
+                // Seluruh delta di-rollback: watermark JDBC Sender tidak maju, delta diambil lagi utuh
+                rollbackQuietly(connection);
+                log.error("❌ Incremental insert rolled back: {} of the delta rows failed", result.failed());
+                return false;
+            }
+            connection.commit();
+        }
+        
+        if (result.failed() == 0) {
+            log.info("✅ All {} records successfully inserted into {}", result.successful(), targetTable);
+            return true;
+        } else {
+            log.warn("⚠️ Insert completed with {} successes and {} failures", result.successful(), result.failed());
+            return result.successful() > 0;
+        }
+    }
+    
+    private InsertResult writeChunk(Connection connection, String writeMode, String insertQuery, String copyQuery,
+                                    RowBatch data, int batchSize, boolean deltaTransaction) throws SQLException {
+        switch (writeMode) {
+            case WRITE_MODE_COPY:
+                return copyIn(connection, copyQuery, data);
+            case WRITE_MODE_BATCH:
+            case WRITE_MODE_UPSERT:
+                return insertBatched(connection, insertQuery, data, batchSize, deltaTransaction);
+            default:
+                return insertRowByRow(connection, insertQuery, data, deltaTransaction);
+        }
+    }
+    
+    // deltaTransaction: berhenti di baris gagal pertama, transaksi akan di-rollback pemanggil
+    private InsertResult insertRowByRow(Connection connection, String insertQuery, 
+                                        RowBatch data, boolean deltaTransaction) throws SQLException {
+        int successfulInserts = 0;
+        int failedInserts = 0;
+        
+        try (PreparedStatement statement = connection.prepareStatement(insertQuery)) {
+            for (int row = 0; row < data.size(); row++) {
+                try {
+                    data.bind(statement, row);
+                    
+                    int affectedRows = statement.executeUpdate();
+                    if (affectedRows > 0) {
+                        successfulInserts++;
+                    } else {
+                        failedInserts++;
+                        log.warn("⚠️ No rows affected for record: {}", data.rowAsMap(row));
+                    }
+                    
+                } catch (Exception e) {
+                    failedInserts++;
+                    log.error("❌ Failed to insert record {}: {}", data.rowAsMap(row), e.getMessage());
+                }
+                if (deltaTransaction && failedInserts > 0) {
+                    break;
+                }
+            }
+        }
+        
+        return new InsertResult(successfulInserts, failedInserts);
+    }
+    
+    // Satu transaksi per batch: batch yang gagal di-rollback utuh, batch berikutnya tetap dicoba.
+    // deltaTransaction: transaksi milik pemanggil, tidak di-commit per batch dan berhenti di batch gagal pertama
+    private InsertResult insertBatched(Connection connection, String insertQuery, 
+                                       RowBatch data, int batchSize, boolean deltaTransaction) throws SQLException {
+        int successfulInserts = 0;
+        int failedInserts = 0;
+        boolean autoCommit = connection.getAutoCommit();
+        if (!deltaTransaction) {
+            connection.setAutoCommit(false);
+        }
+        
+        try (PreparedStatement statement = connection.prepareStatement(insertQuery)) {
+            for (int start = 0; start < data.size(); start += batchSize) {
+                int end = Math.min(start + batchSize, data.size());
+                try {
+                    for (int row = start; row < end; row++) {
+                        data.bind(statement, row);
+                        statement.addBatch();
+                    }
+                    
+                    int[] counts = statement.executeBatch();
+                    if (!deltaTransaction) {
+                        connection.commit();
+                    }
+                    
+                    for (int count : counts) {
+                        // Driver dengan rewrite batch bisa mengembalikan SUCCESS_NO_INFO; upsert MySQL
+                        // mengembalikan 0 untuk baris yang tidak berubah
+                        if (count != Statement.EXECUTE_FAILED) {
                             successfulInserts++;
                         } else {
                             failedInserts++;
-                            log.warn("⚠️ No rows affected for record: {}", row);
                         }
-                        
-                    } catch (Exception e) {
-                        failedInserts++;
-                        log.error("❌ Failed to insert record {}: {}", row, e.getMessage());
                     }
+                    log.debug("📦 Batch committed: rows {}-{}", start + 1, end);
+                    
+                } catch (SQLException e) {
+                    failedInserts += end - start;
+                    statement.clearBatch();
+                    log.error("❌ Batch insert failed for rows {}-{}: {}", start + 1, end, e.getMessage());
+                    if (deltaTransaction) {
+                        break;
+                    }
+                    rollbackQuietly(connection);
                 }
             }
+        } finally {
+            if (!deltaTransaction) {
+                connection.setAutoCommit(autoCommit);
+            }
+        }
+        
+        return new InsertResult(successfulInserts, failedInserts);
+    }
+    
+    /**
+     * Bulk load lewat COPY ... FROM STDIN (CSV). Baris di-encode dan dikirim per buffer ke server,
+     * tidak dikumpulkan dulu menjadi satu payload besar. COPY berjalan dalam satu transaksi: gagal satu, gagal semua.
+     */
+    private InsertResult copyIn(Connection connection, String copyQuery, RowBatch data) throws SQLException {
+        log.info("🚚 Bulk loading with: {}", copyQuery);
+        
+        CopyManager copyManager = connection.unwrap(PGConnection.class).getCopyAPI();
+        CopyIn copyIn = copyManager.copyIn(copyQuery);
+        try {
+            StringBuilder line = new StringBuilder(256);
+            byte[] buffer = new byte[COPY_BUFFER_SIZE];
+            int position = 0;
             
-            if (failedInserts == 0) {
-                log.info("✅ All {} records successfully inserted into {}", successfulInserts, targetTable);
-                return true;
-            } else {
-                log.warn("⚠️ Insert completed with {} successes and {} failures", successfulInserts, failedInserts);
-                return successfulInserts > 0;
+            int columnCount = data.schema().size();
+            for (int row = 0; row < data.size(); row++) {
+                line.setLength(0);
+                for (int i = 0; i < columnCount; i++) {
+                    if (i > 0) {
+                        line.append(',');
+                    }
+                    appendCsvValue(line, data.get(row, i));
+                }
+                line.append('\n');
+                
+                byte[] encoded = line.toString().getBytes(StandardCharsets.UTF_8);
+                if (position + encoded.length > buffer.length) {
+                    copyIn.writeToCopy(buffer, 0, position);
+                    position = 0;
+                }
+                if (encoded.length > buffer.length) {
+                    copyIn.writeToCopy(encoded, 0, encoded.length);
+                } else {
+                    System.arraycopy(encoded, 0, buffer, position, encoded.length);
+                    position += encoded.length;
+                }
+            }
+            if (position > 0) {
+                copyIn.writeToCopy(buffer, 0, position);
             }
             
-        } catch (Exception e) {
-            log.error("❌ Database connection/insert failed: {}", e.getMessage(), e);
-            return false;
+            long copied = copyIn.endCopy();
+            return new InsertResult((int) copied, data.size() - (int) copied);
+            
+        } catch (SQLException e) {
+            if (copyIn.isActive()) {
+                copyIn.cancelCopy();
+            }
+            log.error("❌ COPY into target table failed: {}", e.getMessage());
+            return new InsertResult(0, data.size());
+        }
+    }
+    
+    // NULL = field kosong tanpa quote; selain itu selalu di-quote supaya string kosong tidak terbaca sebagai NULL
+    private void appendCsvValue(StringBuilder line, Object value) {
+        if (value == null) {
+            return;
+        }
+        String text = value instanceof byte[] bytes ? "\\x" + HexFormat.of().formatHex(bytes) : value.toString();
+        line.append('"');
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '"') {
+                line.append('"');
+            }
+            line.append(c);
         }
+        line.append('"');
+    }
+    
+    private String buildCopyQuery(String tableName, String schema, List<String> columns) {
+        String table = schema != null && !schema.isEmpty() ? schema + "." + tableName : tableName;
+        return "COPY " + table + " (" + String.join(", ", columns) + ") FROM STDIN WITH (FORMAT csv)";
     }
     
-    private String buildConnectionUrl(String dbType, String host, int port, String dbName) {
+    /**
+     * Statement insert-or-update sesuai dialect target; parameter tetap berurutan sesuai kolom RowBatch
+     * sehingga bisa dikirim lewat jalur batch yang sama dengan insert biasa. Package-private untuk unit test.
+     */
+    String buildUpsertQuery(String dbType, String tableName, String schema, 
+                            List<String> columns, List<String> keyColumns) {
+        String table = schema != null && !schema.isEmpty() ? schema + "." + tableName : tableName;
+        List<String> updateColumns = columns.stream().filter(column -> !keyColumns.contains(column)).toList();
+        String columnList = String.join(", ", columns);
+        String placeholders = String.join(", ", Collections.nCopies(columns.size(), "?"));
+        
         switch (dbType.toUpperCase()) {
             case "POSTGRESQL":
-                return String.format("jdbc:postgresql://%s:%d/%s", host, port, dbName);
+                return "INSERT INTO " + table + " (" + columnList + ") VALUES (" + placeholders + ")"
+                        + " ON CONFLICT (" + String.join(", ", keyColumns) + ")"
+                        + (updateColumns.isEmpty() ? " DO NOTHING"
+                            : " DO UPDATE SET " + joinAssignments(updateColumns, "", "EXCLUDED.", ""));
             case "MYSQL":
-                return String.format("jdbc:mysql://%s:%d/%s", host, port, dbName);
+                // Tanpa kolom non-key, assignment key = key membuat duplikat diabaikan tanpa error
+                List<String> assigned = updateColumns.isEmpty() ? keyColumns.subList(0, 1) : updateColumns;
+                return "INSERT INTO " + table + " (" + columnList + ") VALUES (" + placeholders + ")"
+                        + " ON DUPLICATE KEY UPDATE " + joinAssignments(assigned, "", "VALUES(", ")");
             case "MSSQL":
-                return String.format("jdbc:sqlserver://%s:%d;databaseName=%s", host, port, dbName);
+                return "MERGE INTO " + table + " AS target USING (VALUES (" + placeholders + ")) AS source (" + columnList + ")"
+                        + " ON " + joinConditions(keyColumns)
+                        + mergeActions(columns, updateColumns) + ";";
             case "ORACLE":
-                return String.format("jdbc:oracle:thin:@%s:%d:%s", host, port, dbName);
+                String selectList = String.join(", ", columns.stream().map(column -> "? " + column).toList());
+                return "MERGE INTO " + table + " target USING (SELECT " + selectList + " FROM dual) source"
+                        + " ON (" + joinConditions(keyColumns) + ")"
+                        + mergeActions(columns, updateColumns);
             default:
-                throw new IllegalArgumentException("Unsupported database type: " + dbType);
+                throw new IllegalArgumentException("Upsert is not supported for database type: " + dbType);
         }
     }
     
-    private int getDefaultPort(String dbType) {
-        switch (dbType.toUpperCase()) {
-            case "POSTGRESQL": return 5432;
-            case "MYSQL": return 3306;
-            case "MSSQL": return 1433;
-            case "ORACLE": return 1521;
-            default: return 5432;
+    private String mergeActions(List<String> columns, List<String> updateColumns) {
+        String matched = updateColumns.isEmpty() ? ""
+                : " WHEN MATCHED THEN UPDATE SET " + joinAssignments(updateColumns, "target.", "source.", "");
+        return matched + " WHEN NOT MATCHED THEN INSERT (" + String.join(", ", columns) + ") VALUES ("
+                + String.join(", ", columns.stream().map(column -> "source." + column).toList()) + ")";
+    }
+    
+    private String joinAssignments(List<String> columns, String targetPrefix, String valuePrefix, String valueSuffix) {
+        return String.join(", ", columns.stream()
+                .map(column -> targetPrefix + column + " = " + valuePrefix + column + valueSuffix)
+                .toList());
+    }
+    
+    private String joinConditions(List<String> keyColumns) {
+        return String.join(" AND ", keyColumns.stream()
+                .map(column -> "target." + column + " = source." + column)
+                .toList());
+    }
+    
+    private List<String> parseKeyColumns(String keyColumns) {
+        return Arrays.stream(keyColumns.split(","))
+                .map(String::trim)
+                .filter(column -> !column.isEmpty())
+                .toList();
+    }
+    
+    // Key dari config dicocokkan ke nama kolom hasil query (kapitalisasi bisa berbeda per driver)
+    private List<String> resolveKeyColumns(List<String> keyColumns, RowBatch.Schema schema) {
+        return keyColumns.stream().map(key -> {
+            int index = schema.indexOf(key);
+            if (index < 0) {
+                throw new IllegalArgumentException("Key column not found in source data: " + key);
+            }
+            return schema.name(index);
+        }).toList();
+    }
+    
+    private String resolveWriteMode(String requested, String dbType) {
+        String mode = requested.trim().toLowerCase();
+        if (WRITE_MODE_COPY.equals(mode) && !"POSTGRESQL".equalsIgnoreCase(dbType)) {
+            log.info("ℹ️ COPY write mode is only available for PostgreSQL, using batch insert for {}", dbType);
+            return WRITE_MODE_BATCH;
+        }
+        if (WRITE_MODE_COPY.equals(mode) || WRITE_MODE_BATCH.equals(mode) || WRITE_MODE_UPSERT.equals(mode)) {
+            return mode;
+        }
+        return WRITE_MODE_ROW;
+    }
+    
+    private void rollbackQuietly(Connection connection) {
+        try {
+            connection.rollback();
+        } catch (SQLException e) {
+            log.warn("⚠️ Rollback failed: {}", e.getMessage());
         }
     }
     
-    private String buildInsertQuery(String tableName, String schema, Map<String, Object> sampleRow) {
+    private String buildInsertQuery(String tableName, String schema, List<String> columns) {
         StringBuilder query = new StringBuilder("INSERT INTO ");
         
         if (schema != null && !schema.isEmpty()) {
@@ -181,7 +544,7 @@ public class JdbcReceiverHandler implements ComponentHandler {
         
         // Column names
         boolean first = true;
-        for (String column : sampleRow.keySet()) {
+        for (String column : columns) {
             if (!first) {
                 query.append(", ");
             }
@@ -193,7 +556,7 @@ public class JdbcReceiverHandler implements ComponentHandler {
         
         // Parameter placeholders
         first = true;
-        for (int i = 0; i < sampleRow.size(); i++) {
+        for (int i = 0; i < columns.size(); i++) {
             if (!first) {
                 query.append(", ");
             }
@@ -0,0 +1,133 @@
+package com.uncal.bpm_backend.service;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Cursor forward-only di database sumber yang dibaca per chunk oleh JDBC Receiver.
+ * Koneksi, statement dan result set tetap terbuka sampai stream di-close (oleh Receiver
+ * atau oleh ScenarioEngineService di akhir eksekusi), sehingga memory hanya sebesar satu chunk.
+ */
+@Slf4j
+public class JdbcRowStream implements AutoCloseable {
+
+    private final Connection connection;
+    private final PreparedStatement statement;
+    private final ResultSet resultSet;
+    private final boolean originalAutoCommit;
+    private final RowBatch.Schema schema;
+    private final int chunkSize;
+
+    private long rowsRead;
+    private Map<String, Object> lastRow;
+    private boolean exhausted;
+    private boolean closed;
+
+    private JdbcRowStream(Connection connection, PreparedStatement statement, ResultSet resultSet,
+                          boolean originalAutoCommit, int chunkSize) throws SQLException {
+        this.connection = connection;
+        this.statement = statement;
+        this.resultSet = resultSet;
+        this.originalAutoCommit = originalAutoCommit;
+        this.chunkSize = chunkSize;
+        this.schema = RowBatch.Schema.from(resultSet.getMetaData());
+    }
+
+    /**
+     * Membuka cursor untuk query. Koneksi menjadi milik stream dan ikut ditutup saat stream di-close.
+     */
+    public static JdbcRowStream open(Connection connection, String dbType, String query, List<Object> parameters,
+                                     int fetchSize, int chunkSize) throws SQLException {
+        boolean originalAutoCommit = connection.getAutoCommit();
+        PreparedStatement statement = null;
+        try {
+            // PostgreSQL hanya memakai cursor (fetchSize) di luar mode autocommit
+            connection.setAutoCommit(false);
+            statement = connection.prepareStatement(query, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            // MySQL Connector/J hanya streaming baris per baris dengan fetchSize Integer.MIN_VALUE
+            statement.setFetchSize("MYSQL".equalsIgnoreCase(dbType) ? Integer.MIN_VALUE : fetchSize);
+            for (int i = 0; i < parameters.size(); i++) {
+                statement.setObject(i + 1, parameters.get(i));
+            }
+            ResultSet resultSet = statement.executeQuery();
+            return new JdbcRowStream(connection, statement, resultSet, originalAutoCommit, chunkSize);
+        } catch (SQLException | RuntimeException e) {
+            closeQuietly(statement);
+            try {
+                connection.rollback();
+                connection.setAutoCommit(originalAutoCommit);
+            } catch (SQLException ignored) {
+                // Koneksi tetap dikembalikan ke pool di bawah
+            }
+            closeQuietly(connection);
+            throw e;
+        }
+    }
+
+    /**
+     * Membaca chunk berikutnya; batch kosong jika semua baris sudah dibaca.
+     */
+    public RowBatch nextChunk() throws SQLException {
+        RowBatch chunk = new RowBatch(schema, chunkSize);
+        if (exhausted || closed) {
+            return chunk;
+        }
+
+        exhausted = !chunk.readFrom(resultSet, chunkSize);
+        rowsRead += chunk.size();
+        if (!chunk.isEmpty()) {
+            lastRow = chunk.rowAsMap(chunk.size() - 1);
+        }
+        return chunk;
+    }
+
+    public long getRowsRead() {
+        return rowsRead;
+    }
+
+    // Baris terakhir yang sudah dibaca, dipakai untuk watermark mode incremental
+    public Map<String, Object> getLastRow() {
+        return lastRow;
+    }
+
+    public boolean isExhausted() {
+        return exhausted;
+    }
+
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+
+        closeQuietly(resultSet);
+        closeQuietly(statement);
+        try {
+            // Transaksi baca saja, cukup di-rollback sebelum koneksi kembali ke pool
+            connection.rollback();
+            connection.setAutoCommit(originalAutoCommit);
+        } catch (SQLException e) {
+            log.warn("⚠️ Failed to reset streamed source connection: {}", e.getMessage());
+        }
+        closeQuietly(connection);
+        log.debug("🔒 Closed source row stream after {} rows", rowsRead);
+    }
+
+    private static void closeQuietly(AutoCloseable resource) {
+        if (resource == null) {
+            return;
+        }
+        try {
+            resource.close();
+        } catch (Exception e) {
+            log.debug("Failed to close JDBC resource: {}", e.getMessage());
+        }
+    }
+}
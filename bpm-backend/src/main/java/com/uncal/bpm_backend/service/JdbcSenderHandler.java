@@ -1,34 +1,43 @@
 package com.uncal.bpm_backend.service;
 
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
-import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
 
 import org.json.JSONObject;
 import org.springframework.stereotype.Component;
 
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
 @Component
+@RequiredArgsConstructor
 @Slf4j
 public class JdbcSenderHandler implements ComponentHandler {
     
+    private final JdbcConnectionPoolRegistry connectionPoolRegistry;
+    private final JdbcWatermarkService jdbcWatermarkService;
     private final ConcurrentHashMap<String, Long> processedQueries = new ConcurrentHashMap<>();
     private static final long PROCESSED_QUERY_TTL = 5 * 60 * 1000;
-    private final Object connectionLock = new Object();
+    private static final int DEFAULT_FETCH_SIZE = 1000;
+    private static final int DEFAULT_ACQUIRE_TIMEOUT_SECONDS = 60;
     
     @Override
     public String getComponentType() {
         return "Sender"; // ✅ Tetap return "Sender" untuk compatibility
     }
     
+    @Override
+    public String getComponentSubtype() {
+        return "jdbc-sender";
+    }
+    
     @Override
     public boolean execute(ComponentExecutionData componentData, ExecutionContext context) {
         String componentLabel = componentData.getLabel();
@@ -37,7 +46,7 @@ public class JdbcSenderHandler implements ComponentHandler {
             JSONObject config = componentData.getConfigData();
             String dbType = config.optString("db_type", "POSTGRESQL");
             String host = config.optString("host", "localhost");
-            int port = config.optInt("port", getDefaultPort(dbType));
+            int port = config.optInt("port", connectionPoolRegistry.getDefaultPort(dbType));
             String dbName = config.optString("db_name", "");
             String schema = config.optString("schema", "");
             String username = config.optString("username", "");
@@ -45,6 +54,16 @@ public class JdbcSenderHandler implements ComponentHandler {
             String sourceTable = config.optString("sourceTable", "");
             String customQuery = config.optString("query", "");
             int pollingInterval = config.optInt("pollingInterval", 10);
+            // stream: cursor forward-only, Receiver membaca per chunk; full: seluruh hasil query di memory
+            boolean streamMode = "stream".equalsIgnoreCase(config.optString("fetchMode", "full"));
+            int fetchSize = Math.max(1, config.optInt("fetchSize", DEFAULT_FETCH_SIZE));
+            int chunkSize = Math.max(1, config.optInt("chunkSize", fetchSize));
+            // incremental: hanya baris dengan nilai kolom (id/updated_at) di atas watermark terakhir
+            String incrementalColumn = config.optString("incrementalColumn", "").trim();
+            boolean incremental = !incrementalColumn.isEmpty();
+            // Batas eksekusi paralel ke endpoint ini (melindungi database sumber yang rentan)
+            int maxConcurrency = config.optInt("maxConcurrency", 0);
+            int acquireTimeoutSeconds = config.optInt("acquireTimeoutSeconds", DEFAULT_ACQUIRE_TIMEOUT_SECONDS);
             
             log.info("🗃️ JDBC Sender [{}] - DB: {}://{}:{}/{}, Table: {}", 
                     componentLabel, dbType, host, port, dbName, sourceTable);
@@ -60,24 +79,63 @@ public class JdbcSenderHandler implements ComponentHandler {
                 return false;
             }
             
-            synchronized (connectionLock) {
-                String connectionUrl = buildConnectionUrl(dbType, host, port, dbName);
+            Long scenarioId = (Long) context.get("scenarioId");
+            String componentKey = componentData.getRawComponentJson() != null
+                    ? componentData.getRawComponentJson().optString("id", componentLabel) : componentLabel;
+            
+            // Slot per endpoint menggantikan lock global: scenario ke database lain tidak ikut menunggu
+            JdbcConnectionPoolRegistry.EndpointPermit permit = connectionPoolRegistry.acquirePermit(
+                    dbType, host, port, dbName, scenarioId + ":" + componentKey, maxConcurrency, 
+                    acquireTimeoutSeconds * 1000L);
+            boolean permitHandedOff = false;
+            try {
+                String connectionUrl = connectionPoolRegistry.buildConnectionUrl(dbType, host, port, dbName);
                 String queryKey = customQuery.isEmpty() ? sourceTable : customQuery.hashCode() + "";
                 
-                // Cek apakah query sudah diproses baru-baru ini
-                if (isAlreadyProcessed(queryKey)) {
+                // Cek apakah query sudah diproses baru-baru ini (mode incremental dibatasi watermark)
+                if (!incremental && isAlreadyProcessed(queryKey)) {
                     log.info("⏭️ Skipping already processed query/table: {}", 
                             customQuery.isEmpty() ? sourceTable : "custom query");
                     return false;
                 }
                 
-                try (Connection connection = DriverManager.getConnection(connectionUrl, username, password)) {
+                Object watermark = incremental && scenarioId != null
+                        ? jdbcWatermarkService.currentValue(scenarioId, componentKey, incrementalColumn) : null;
+                
+                String finalQuery = buildFinalQuery(customQuery, sourceTable, schema);
+                List<Object> parameters = new ArrayList<>();
+                if (incremental) {
+                    finalQuery = buildIncrementalQuery(finalQuery, customQuery, incrementalColumn, watermark != null);
+                    if (watermark != null) {
+                        parameters.add(watermark);
+                    }
+                    log.info("🔖 Incremental on {} from watermark: {}", incrementalColumn, 
+                            watermark != null ? watermark : "(none)");
+                }
+                
+                if (streamMode) {
+                    // Cursor tetap terbuka setelah Sender selesai, slot baru dilepas di akhir eksekusi scenario
+                    context.registerResource(permit);
+                    permitHandedOff = true;
+                    JdbcRowStream stream = openRowStream(context, dbType, host, port, dbName, schema, username, password,
+                                                         sourceTable, finalQuery, parameters, queryKey, fetchSize, chunkSize);
+                    if (stream == null) {
+                        permit.close();
+                        return false;
+                    }
+                    context.put("jdbcStreamEndpoint", permit.getEndpoint());
+                    context.put("jdbcStreamPermit", permit);
+                    if (incremental && scenarioId != null) {
+                        registerWatermarkCommit(context, scenarioId, componentKey, incrementalColumn, stream::getLastRow);
+                    }
+                    return true;
+                }
+                
+                try (Connection connection = connectionPoolRegistry.getConnection(dbType, host, port, dbName, username, password)) {
                     log.info("🔗 Connected to database: {}", connectionUrl);
-                    
-                    String finalQuery = buildFinalQuery(customQuery, sourceTable, schema);
                     log.info("📊 Executing query: {}", finalQuery);
                     
-                    List<Map<String, Object>> data = executeQuery(connection, finalQuery);
+                    RowBatch data = executeQuery(connection, finalQuery, parameters);
                     
                     if (data.isEmpty()) {
                         log.info("📭 No data found for query: {}", finalQuery);
@@ -98,6 +156,11 @@ public class JdbcSenderHandler implements ComponentHandler {
                     // Tandai query sebagai processed
                     markAsProcessed(queryKey);
                     
+                    if (incremental && scenarioId != null) {
+                        Map<String, Object> lastRow = data.rowAsMap(data.size() - 1);
+                        registerWatermarkCommit(context, scenarioId, componentKey, incrementalColumn, () -> lastRow);
+                    }
+                    
                     log.info("✅ JDBC Sender execution successful - {} records retrieved", data.size());
                     return true;
                     
@@ -105,6 +168,10 @@ public class JdbcSenderHandler implements ComponentHandler {
                     log.error("❌ Database connection/query failed: {}", e.getMessage(), e);
                     return false;
                 }
+            } finally {
+                if (!permitHandedOff) {
+                    permit.close();
+                }
             }
             
         } catch (Exception e) {
@@ -113,28 +180,52 @@ public class JdbcSenderHandler implements ComponentHandler {
         }
     }
     
-    private String buildConnectionUrl(String dbType, String host, int port, String dbName) {
-        switch (dbType.toUpperCase()) {
-            case "POSTGRESQL":
-                return String.format("jdbc:postgresql://%s:%d/%s", host, port, dbName);
-            case "MYSQL":
-                return String.format("jdbc:mysql://%s:%d/%s", host, port, dbName);
-            case "MSSQL":
-                return String.format("jdbc:sqlserver://%s:%d;databaseName=%s", host, port, dbName);
-            case "ORACLE":
-                return String.format("jdbc:oracle:thin:@%s:%d:%s", host, port, dbName);
-            default:
-                throw new IllegalArgumentException("Unsupported database type: " + dbType);
-        }
-    }
-    
-    private int getDefaultPort(String dbType) {
-        switch (dbType.toUpperCase()) {
-            case "POSTGRESQL": return 5432;
-            case "MYSQL": return 3306;
-            case "MSSQL": return 1433;
-            case "ORACLE": return 1521;
-            default: return 5432;
+    /**
+     * Mode stream: chunk pertama dibaca di sini (untuk tahu ada data atau tidak), sisanya dibaca
+     * Receiver dari "jdbcStream". Stream didaftarkan ke context supaya tetap tertutup jika Receiver gagal.
+     */
+    private JdbcRowStream openRowStream(ExecutionContext context, String dbType, String host, int port, String dbName,
+                                        String schema, String username, String password, String sourceTable,
+                                        String finalQuery, List<Object> parameters, String queryKey,
+                                        int fetchSize, int chunkSize) {
+        JdbcRowStream stream = null;
+        
+        try {
+            Connection connection = connectionPoolRegistry.getConnection(dbType, host, port, dbName, username, password);
+            log.info("📊 Streaming query (fetch size {}, chunk size {}): {}", fetchSize, chunkSize, finalQuery);
+            
+            stream = JdbcRowStream.open(connection, dbType, finalQuery, parameters, fetchSize, chunkSize);
+            RowBatch firstChunk = stream.nextChunk();
+            
+            if (firstChunk.isEmpty()) {
+                log.info("📭 No data found for query: {}", finalQuery);
+                stream.close();
+                cleanupProcessedQueries();
+                return null;
+            }
+            
+            context.registerResource(stream);
+            context.put("jdbcData", firstChunk);
+            context.put("recordCount", firstChunk.size());
+            if (!stream.isExhausted()) {
+                context.put("jdbcStream", stream);
+            }
+            context.put("sourceQuery", finalQuery);
+            context.put("sourceTable", sourceTable);
+            context.put("dbType", dbType);
+            context.put("schema", schema);
+            
+            markAsProcessed(queryKey);
+            
+            log.info("✅ JDBC Sender stream opened - first chunk of {} records", firstChunk.size());
+            return stream;
+            
+        } catch (Exception e) {
+            if (stream != null) {
+                stream.close();
+            }
+            log.error("❌ Database connection/streaming query failed: {}", e.getMessage(), e);
+            return null;
         }
     }
     
@@ -150,30 +241,68 @@ public class JdbcSenderHandler implements ComponentHandler {
         return String.format("SELECT * FROM %s", sourceTable);
     }
     
-    private List<Map<String, Object>> executeQuery(Connection connection, String query) {
-        List<Map<String, Object>> results = new ArrayList<>();
-        
-        try (PreparedStatement statement = connection.prepareStatement(query);
+    /**
+     * Membungkus query dengan filter watermark dan urutan naik, sehingga baris terakhir
+     * yang dibaca selalu membawa nilai watermark tertinggi.
+     */
+    private String buildIncrementalQuery(String baseQuery, String customQuery, String column, boolean hasWatermark) {
+        String source = customQuery.isEmpty() ? baseQuery : "SELECT * FROM (" + customQuery + ") bpm_src";
+        String filter = hasWatermark ? " WHERE " + column + " > ?" : "";
+        return source + filter + " ORDER BY " + column;
+    }
+    
+    // Watermark baru di-commit engine setelah Receiver (dan seluruh scenario) berhasil
+    private void registerWatermarkCommit(ExecutionContext context, Long scenarioId, String componentKey,
+                                         String column, Supplier<Map<String, Object>> lastRow) {
+        // Receiver menulis delta incremental dalam satu transaksi: semua baris masuk, atau tidak sama sekali
+        context.put("jdbcIncremental", true);
+        context.onSuccess(() -> {
+            Map<String, Object> row = lastRow.get();
+            if (row != null) {
+                jdbcWatermarkService.commit(scenarioId, componentKey, column, columnValue(row, column));
+            }
+        });
+    }
+    
+    // Nama kolom dari driver bisa berbeda kapitalisasi (mis. Oracle selalu uppercase)
+    private Object columnValue(Map<String, Object> row, String column) {
+        if (row.containsKey(column)) {
+            return row.get(column);
+        }
+        for (Map.Entry<String, Object> entry : row.entrySet()) {
+            if (entry.getKey().equalsIgnoreCase(column)) {
+                return entry.getValue();
+            }
+        }
+        log.warn("⚠️ Watermark column {} not found in result set", column);
+        return null;
+    }
+    
+    private RowBatch executeQuery(Connection connection, String query, List<Object> parameters) {
+        try (PreparedStatement statement = prepare(connection, query, parameters);
              ResultSet resultSet = statement.executeQuery()) {
             
-            ResultSetMetaData metaData = resultSet.getMetaData();
-            int columnCount = metaData.getColumnCount();
-            
-            while (resultSet.next()) {
-                Map<String, Object> row = new HashMap<>();
-                for (int i = 1; i <= columnCount; i++) {
-                    String columnName = metaData.getColumnName(i);
-                    Object value = resultSet.getObject(i);
-                    row.put(columnName, value);
-                }
-                results.add(row);
-            }
+            // Metadata kolom dibaca sekali untuk seluruh baris
+            RowBatch results = new RowBatch(RowBatch.Schema.from(resultSet.getMetaData()));
+            results.readFrom(resultSet, 0);
+            return results;
             
         } catch (Exception e) {
             throw new RuntimeException("Query execution failed: " + e.getMessage(), e);
         }
-        
-        return results;
+    }
+    
+    private PreparedStatement prepare(Connection connection, String query, List<Object> parameters) throws SQLException {
+        PreparedStatement statement = connection.prepareStatement(query);
+        try {
+            for (int i = 0; i < parameters.size(); i++) {
+                statement.setObject(i + 1, parameters.get(i));
+            }
+        } catch (SQLException e) {
+            statement.close();
+            throw e;
+        }
+        return statement;
     }
     
     private boolean isAlreadyProcessed(String queryKey) {
@@ -0,0 +1,113 @@
+package com.uncal.bpm_backend.service;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.uncal.bpm_backend.model.JdbcWatermark;
+import com.uncal.bpm_backend.repository.JdbcWatermarkRepository;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Menyimpan dan membaca high-watermark JDBC Sender mode incremental.
+ * Watermark hanya di-commit setelah seluruh scenario berhasil, sehingga baris yang gagal dikirim
+ * akan diambil lagi pada polling berikutnya.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class JdbcWatermarkService {
+
+    private final JdbcWatermarkRepository jdbcWatermarkRepository;
+
+    /**
+     * Nilai watermark terakhir dalam tipe yang bisa langsung di-bind ke PreparedStatement;
+     * null jika belum ada atau kolom watermark di config sudah diganti.
+     */
+    public Object currentValue(Long scenarioId, String componentKey, String column) {
+        JdbcWatermark watermark = jdbcWatermarkRepository
+                .findByScenarioIdAndComponentKey(scenarioId, componentKey)
+                .orElse(null);
+
+        if (watermark == null || watermark.getWatermarkValue() == null) {
+            return null;
+        }
+        if (!watermark.getWatermarkColumn().equalsIgnoreCase(column)) {
+            log.info("🔄 Watermark column changed from {} to {}, starting from the beginning",
+                    watermark.getWatermarkColumn(), column);
+            return null;
+        }
+
+        String value = watermark.getWatermarkValue();
+        switch (watermark.getValueType()) {
+            case "NUMBER":
+                return new BigDecimal(value);
+            case "TIMESTAMP":
+                return Timestamp.valueOf(LocalDateTime.parse(value));
+            case "TIMESTAMPTZ":
+                return OffsetDateTime.parse(value);
+            case "DATE":
+                return Date.valueOf(LocalDate.parse(value));
+            default:
+                return value;
+        }
+    }
+
+    @Transactional
+    public void commit(Long scenarioId, String componentKey, String column, Object value) {
+        if (value == null) {
+            return;
+        }
+
+        JdbcWatermark watermark = jdbcWatermarkRepository
+                .findByScenarioIdAndComponentKey(scenarioId, componentKey)
+                .orElseGet(JdbcWatermark::new);
+
+        watermark.setScenarioId(scenarioId);
+        watermark.setComponentKey(componentKey);
+        watermark.setWatermarkColumn(column);
+        watermark.setValueType(valueType(value));
+        watermark.setWatermarkValue(valueText(value));
+        watermark.setUpdatedAt(LocalDateTime.now());
+        jdbcWatermarkRepository.save(watermark);
+
+        log.info("🔖 Committed watermark {} = {} for scenario {}", column, watermark.getWatermarkValue(), scenarioId);
+    }
+
+    private String valueType(Object value) {
+        if (value instanceof Number) {
+            return "NUMBER";
+        }
+        if (value instanceof Timestamp || value instanceof LocalDateTime) {
+            return "TIMESTAMP";
+        }
+        if (value instanceof OffsetDateTime) {
+            return "TIMESTAMPTZ";
+        }
+        if (value instanceof Date || value instanceof LocalDate) {
+            return "DATE";
+        }
+        return "STRING";
+    }
+
+    private String valueText(Object value) {
+        if (value instanceof Timestamp timestamp) {
+            return timestamp.toLocalDateTime().toString();
+        }
+        if (value instanceof Date date) {
+            return date.toLocalDate().toString();
+        }
+        if (value instanceof BigDecimal decimal) {
+            return decimal.toPlainString();
+        }
+        return value.toString();
+    }
+}
@@ -0,0 +1,248 @@
+package com.uncal.bpm_backend.service;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.uncal.bpm_backend.model.ProcessedFile;
+import com.uncal.bpm_backend.repository.ProcessedFileRepository;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Ledger persisten untuk file yang sudah diambil File Sender.
+ * File di-claim saat diambil (hanya di memory), lalu di-commit ke database setelah
+ * Receiver berhasil mengirim. Claim yang gagal dilepas lagi supaya file bisa dicoba ulang.
+ * Entry claim ikut dibawa di ExecutionContext, jadi commit tetap tercatat walau claim in-memory
+ * sudah kedaluwarsa (transfer atau retry yang lebih lama dari CLAIM_TTL).
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ProcessedFileLedger {
+
+    private static final long CLAIM_TTL = 5 * 60 * 1000;
+    private static final int MAX_CACHED_FINGERPRINTS = 50_000;
+
+    private final ProcessedFileRepository processedFileRepository;
+
+    // 0 = ledger disimpan selamanya; > 0 = hanya entry yang file sumbernya sudah tidak ada yang dihapus
+    @Value("${bpm.file-ledger.retention-days:0}")
+    private int retentionDays;
+
+    // Claim yang sedang diproses di JVM ini (dibatasi oleh jumlah file yang sedang dikirim)
+    private final Map<String, ProcessedFile> inFlight = new ConcurrentHashMap<>();
+
+    // Cache LRU fingerprint yang sudah pasti tercatat di database
+    private final Map<String, Boolean> recentlyProcessed = Collections.synchronizedMap(
+            new LinkedHashMap<>(1024, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+                    return size() > MAX_CACHED_FINGERPRINTS;
+                }
+            });
+
+    public ProcessedFile createEntry(Path path, long fileSize, long lastModified, String contentHash) {
+        String filePath = path.toAbsolutePath().normalize().toString();
+
+        ProcessedFile entry = new ProcessedFile();
+        entry.setFingerprint(fingerprint(path, fileSize, lastModified));
+        entry.setFilePath(filePath.length() > 1000 ? filePath.substring(filePath.length() - 1000) : filePath);
+        entry.setFileSize(fileSize);
+        entry.setLastModified(lastModified);
+        entry.setContentHash(contentHash);
+        entry.setScope(scope(path));
+        return entry;
+    }
+
+    // Cek tanpa database: claim yang masih aktif atau fingerprint yang sudah ada di cache
+    public boolean isKnownProcessed(String fingerprint) {
+        ProcessedFile claimed = inFlight.get(fingerprint);
+        if (claimed != null && !isExpired(claimed)) {
+            return true;
+        }
+        return recentlyProcessed.containsKey(fingerprint);
+    }
+
+    public boolean isProcessed(String fingerprint) {
+        if (isKnownProcessed(fingerprint)) {
+            return true;
+        }
+
+        try {
+            if (processedFileRepository.existsByFingerprint(fingerprint)) {
+                recentlyProcessed.put(fingerprint, Boolean.TRUE);
+                return true;
+            }
+            return false;
+        } catch (Exception e) {
+            // Lebih aman melewati file daripada mengirim dua kali saat ledger tidak bisa dibaca
+            log.error("❌ Ledger lookup failed, skipping file for now: {}", e.getMessage());
+            return true;
+        }
+    }
+
+    // Content hash hanya dibandingkan dalam scope (direktori sumber) yang sama, bukan lintas scenario
+    public boolean isContentProcessed(String contentHash, String scope) {
+        try {
+            return contentHash != null && processedFileRepository.existsByContentHashAndScope(contentHash, scope);
+        } catch (Exception e) {
+            log.error("❌ Ledger content lookup failed, skipping file for now: {}", e.getMessage());
+            return true;
+        }
+    }
+
+    public boolean claim(ProcessedFile entry) {
+        entry.setProcessedAt(LocalDateTime.now());
+        ProcessedFile existing = inFlight.putIfAbsent(entry.getFingerprint(), entry);
+        if (existing != null && isExpired(existing)) {
+            return inFlight.replace(entry.getFingerprint(), existing, entry);
+        }
+        return existing == null;
+    }
+
+    public void commit(String fingerprint) {
+        ProcessedFile entry = inFlight.remove(fingerprint);
+        if (entry == null) {
+            return;
+        }
+        record(entry);
+    }
+
+    // Commit dari entry yang dibawa context; tidak bergantung pada claim yang mungkin sudah di-purge
+    public void commit(ProcessedFile entry) {
+        inFlight.remove(entry.getFingerprint(), entry);
+        record(entry);
+    }
+
+    // Dipanggil saat transfer dimulai: claim diperpanjang, atau dipasang lagi jika sudah di-purge
+    public void refresh(ProcessedFile entry) {
+        entry.setProcessedAt(LocalDateTime.now());
+        inFlight.putIfAbsent(entry.getFingerprint(), entry);
+    }
+
+    // Catat langsung tanpa claim, misalnya untuk file duplikat yang dilewati berdasarkan content hash
+    public void record(ProcessedFile entry) {
+        try {
+            entry.setProcessedAt(LocalDateTime.now());
+            processedFileRepository.save(entry);
+            log.debug("🔖 Recorded file in ledger: {}", entry.getFilePath());
+        } catch (DataIntegrityViolationException e) {
+            log.debug("🔖 File already recorded in ledger: {}", entry.getFilePath());
+        } catch (Exception e) {
+            log.error("❌ Failed to record file in ledger {}: {}", entry.getFilePath(), e.getMessage());
+        }
+        recentlyProcessed.put(entry.getFingerprint(), Boolean.TRUE);
+    }
+
+    public void release(String fingerprint) {
+        if (inFlight.remove(fingerprint) != null) {
+            log.debug("🔓 Released ledger claim: {}", fingerprint);
+        }
+    }
+
+    public String contentHash(Path path) {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            ByteBuffer buffer = ByteBuffer.allocateDirect(64 * 1024);
+            while (channel.read(buffer) != -1) {
+                buffer.flip();
+                digest.update(buffer);
+                buffer.clear();
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to hash file: " + path, e);
+        }
+    }
+
+    @Scheduled(fixedDelay = 60_000)
+    public void purgeExpiredClaims() {
+        inFlight.values().removeIf(this::isExpired);
+    }
+
+    /**
+     * Opt-in (bpm.file-ledger.retention-days > 0). Entry yang file sumbernya masih ada tidak pernah dihapus:
+     * file yang ditinggal di tempat (action "none" atau remove gagal) akan terkirim ulang tanpa entry-nya.
+     */
+    @Scheduled(cron = "0 30 2 * * *")
+    @Transactional
+    public void purgeOldEntries() {
+        if (retentionDays <= 0) {
+            return;
+        }
+        LocalDateTime cutoff = LocalDateTime.now().minusDays(retentionDays);
+        long lastId = 0;
+        int deleted = 0;
+        List<ProcessedFile> page;
+        while (!(page = processedFileRepository.findTop500ByProcessedAtBeforeAndIdGreaterThanOrderByIdAsc(
+                cutoff, lastId)).isEmpty()) {
+            List<Long> gone = new ArrayList<>();
+            for (ProcessedFile entry : page) {
+                // Path yang terpotong (1000 karakter terakhir) tidak bisa dicek, entry-nya dibiarkan
+                String filePath = entry.getFilePath();
+                if (filePath != null && filePath.length() < 1000 && !Files.exists(Paths.get(filePath))) {
+                    gone.add(entry.getId());
+                }
+            }
+            if (!gone.isEmpty()) {
+                processedFileRepository.deleteAllByIdInBatch(gone);
+                deleted += gone.size();
+            }
+            lastId = page.get(page.size() - 1).getId();
+        }
+        if (deleted > 0) {
+            log.info("🧹 Purged {} ledger entries older than {} days whose source file is gone", deleted, retentionDays);
+        }
+    }
+
+    public void clearCache() {
+        inFlight.clear();
+        recentlyProcessed.clear();
+    }
+
+    private boolean isExpired(ProcessedFile entry) {
+        return entry.getProcessedAt().isBefore(LocalDateTime.now().minusNanos(CLAIM_TTL * 1_000_000));
+    }
+
+    private String scope(Path path) {
+        Path directory = path.toAbsolutePath().normalize().getParent();
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            String key = directory != null ? directory.toString() : "";
+            return HexFormat.of().formatHex(digest.digest(key.getBytes(StandardCharsets.UTF_8)));
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to compute ledger scope", e);
+        }
+    }
+
+    public String fingerprint(Path path, long fileSize, long lastModified) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            String key = path.toAbsolutePath().normalize() + "|" + fileSize + "|" + lastModified;
+            return HexFormat.of().formatHex(digest.digest(key.getBytes(StandardCharsets.UTF_8)));
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to compute file fingerprint", e);
+        }
+    }
+}
@@ -12,6 +12,8 @@ import java.util.stream.Collectors;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.web.server.ResponseStatusException;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
@@ -37,6 +39,7 @@ public class ProjectService {
     private final ProjectRepository projectRepository;
     private final FileRepository fileRepository;
     private final ObjectMapper objectMapper;
+    private final ScenarioEngineService scenarioEngineService;
 
     // ---------------------- PROJECT OPERATIONS ----------------------
 
@@ -93,13 +96,17 @@ public class ProjectService {
         file.setName(request.getName());
 
         if (request.getCanvasData() != null) {
-            file.setCanvasData(request.getCanvasData());
+            applyCanvasData(file, request.getCanvasData());
         }
         if (request.getMetadata() != null) {
             file.setMetadata(request.getMetadata());
         }
 
-        return fileRepository.save(file);
+        File savedFile = fileRepository.save(file);
+        if (request.getCanvasData() != null) {
+            publishCanvasAfterCommit(savedFile.getId(), savedFile.getCanvasData());
+        }
+        return savedFile;
     }
 
     @Transactional(readOnly = true)
@@ -168,8 +175,9 @@ public class ProjectService {
             throw new RuntimeException("Unauthorized to access this file");
         }
 
-        file.setCanvasData(canvasData);
+        applyCanvasData(file, canvasData);
         fileRepository.save(file);
+        publishCanvasAfterCommit(fileId, file.getCanvasData());
     }
 
     // ---------------------- RENAME OPERATIONS ----------------------
@@ -250,16 +258,43 @@ public class ProjectService {
 
         // Update fields jika provided
         if (canvasData != null) {
-            file.setCanvasData(canvasData);
+            applyCanvasData(file, canvasData);
         }
         if (metadata != null) {
             file.setMetadata(metadata);
         }
 
         fileRepository.save(file);
+        if (canvasData != null) {
+            // Scenario yang sedang berjalan memakai canvas baru mulai tick berikutnya
+            publishCanvasAfterCommit(fileId, file.getCanvasData());
+        }
         System.out.println("✅ File data updated - ID: " + fileId);
     }
 
+    // Scenario yang berjalan baru memakai canvas baru setelah transaksi commit; jika rollback, plan lama tetap dipakai
+    private void publishCanvasAfterCommit(Long fileId, String canvasData) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            scenarioEngineService.publishCanvas(fileId, canvasData);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                scenarioEngineService.publishCanvas(fileId, canvasData);
+            }
+        });
+    }
+
+    // Canvas dari editor tidak membawa runStatus; status run scenario yang sedang berjalan tetap dipertahankan
+    private void applyCanvasData(File file, String canvasData) {
+        Integer runStatus = file.getRunStatus();
+        file.setCanvasData(canvasData);
+        if (runStatus != null && runStatus == 1 && !canvasData.contains("runStatus")) {
+            file.setRunStatus(runStatus);
+        }
+    }
+
     // ---------------------- NEW METHOD FOR SCENARIO DATA SAVE ----------------------
 
     @Transactional
@@ -290,6 +325,7 @@ public class ProjectService {
                 Map<String, Object> flowItem = new HashMap<>();
                 flowItem.put("id", comp.get("id"));
                 flowItem.put("type", comp.get("type"));
+                flowItem.put("subtype", comp.get("subtype"));
                 flowItem.put("label", comp.get("label"));
                 flowItem.put("config", comp.get("form") != null ? comp.get("form") : comp.get("config"));
                 flowItem.put("style", comp.get("style"));
@@ -0,0 +1,286 @@
+package com.uncal.bpm_backend.service;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.LongBuffer;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Kumpulan baris hasil JDBC Sender dalam bentuk kolom (columnar), pengganti List<Map<String, Object>>.
+ * Satu schema dipakai bersama semua baris; kolom integer/float/boolean disimpan sebagai array primitif
+ * (LongBuffer/DoubleBuffer, off-heap untuk batch besar), kolom lain sebagai Object[].
+ */
+public class RowBatch {
+
+    // Di atas jumlah baris ini vector long/double dialokasikan off-heap (direct buffer)
+    private static final int OFF_HEAP_THRESHOLD_ROWS = 65_536;
+    private static final int DEFAULT_CAPACITY = 1024;
+
+    public enum ColumnKind { LONG, DOUBLE, BOOLEAN, OBJECT }
+
+    /**
+     * Nama, tipe JDBC dan jenis vector per kolom; dibaca sekali dari ResultSetMetaData.
+     */
+    public static final class Schema {
+        private final String[] names;
+        private final int[] sqlTypes;
+        private final ColumnKind[] kinds;
+
+        private Schema(String[] names, int[] sqlTypes, ColumnKind[] kinds) {
+            this.names = names;
+            this.sqlTypes = sqlTypes;
+            this.kinds = kinds;
+        }
+
+        public static Schema from(ResultSetMetaData metaData) throws SQLException {
+            int count = metaData.getColumnCount();
+            String[] names = new String[count];
+            int[] sqlTypes = new int[count];
+            ColumnKind[] kinds = new ColumnKind[count];
+
+            for (int i = 0; i < count; i++) {
+                names[i] = metaData.getColumnName(i + 1);
+                sqlTypes[i] = metaData.getColumnType(i + 1);
+                kinds[i] = kindOf(sqlTypes[i], metaData.getPrecision(i + 1), metaData.getScale(i + 1));
+            }
+            return new Schema(names, sqlTypes, kinds);
+        }
+
+        private static ColumnKind kindOf(int sqlType, int precision, int scale) {
+            switch (sqlType) {
+                case Types.TINYINT:
+                case Types.SMALLINT:
+                case Types.INTEGER:
+                case Types.BIGINT:
+                    return ColumnKind.LONG;
+                case Types.NUMERIC:
+                case Types.DECIMAL:
+                    // NUMBER(p,0) Oracle / NUMERIC(p,0) yang muat di long; lainnya tetap BigDecimal
+                    return scale == 0 && precision > 0 && precision <= 18 ? ColumnKind.LONG : ColumnKind.OBJECT;
+                case Types.REAL:
+                case Types.FLOAT:
+                case Types.DOUBLE:
+                    return ColumnKind.DOUBLE;
+                case Types.BOOLEAN:
+                    return ColumnKind.BOOLEAN;
+                case Types.BIT:
+                    return precision <= 1 ? ColumnKind.BOOLEAN : ColumnKind.OBJECT;
+                default:
+                    return ColumnKind.OBJECT;
+            }
+        }
+
+        public int size() {
+            return names.length;
+        }
+
+        public String name(int column) {
+            return names[column];
+        }
+
+        public int sqlType(int column) {
+            return sqlTypes[column];
+        }
+
+        public ColumnKind kind(int column) {
+            return kinds[column];
+        }
+
+        public String[] names() {
+            return names.clone();
+        }
+
+        // Nama kolom dari driver bisa berbeda kapitalisasi (mis. Oracle selalu uppercase)
+        public int indexOf(String column) {
+            for (int i = 0; i < names.length; i++) {
+                if (names[i].equals(column)) {
+                    return i;
+                }
+            }
+            for (int i = 0; i < names.length; i++) {
+                if (names[i].equalsIgnoreCase(column)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+    }
+
+    private final Schema schema;
+    private final LongBuffer[] longs;
+    private final DoubleBuffer[] doubles;
+    private final boolean[][] booleans;
+    private final Object[][] objects;
+    private final BitSet[] nulls;
+
+    private int capacity;
+    private int size;
+
+    public RowBatch(Schema schema, int initialCapacity) {
+        this.schema = schema;
+        int columns = schema.size();
+        this.longs = new LongBuffer[columns];
+        this.doubles = new DoubleBuffer[columns];
+        this.booleans = new boolean[columns][];
+        this.objects = new Object[columns][];
+        this.nulls = new BitSet[columns];
+        for (int i = 0; i < columns; i++) {
+            nulls[i] = new BitSet();
+        }
+        allocate(Math.max(1, initialCapacity));
+    }
+
+    public RowBatch(Schema schema) {
+        this(schema, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Membaca paling banyak maxRows baris dari posisi cursor saat ini.
+     * Mengembalikan false jika result set sudah habis.
+     */
+    public boolean readFrom(ResultSet resultSet, int maxRows) throws SQLException {
+        int columns = schema.size();
+        while (maxRows <= 0 || size < maxRows) {
+            if (!resultSet.next()) {
+                return false;
+            }
+            if (size == capacity) {
+                allocate(capacity * 2);
+            }
+
+            int row = size;
+            for (int i = 0; i < columns; i++) {
+                int index = i + 1;
+                switch (schema.kinds[i]) {
+                    case LONG:
+                        longs[i].put(row, resultSet.getLong(index));
+                        break;
+                    case DOUBLE:
+                        doubles[i].put(row, resultSet.getDouble(index));
+                        break;
+                    case BOOLEAN:
+                        booleans[i][row] = resultSet.getBoolean(index);
+                        break;
+                    default:
+                        objects[i][row] = resultSet.getObject(index);
+                        break;
+                }
+                if (resultSet.wasNull()) {
+                    nulls[i].set(row);
+                }
+            }
+            size++;
+        }
+        return true;
+    }
+
+    /**
+     * Bind satu baris ke parameter 1..n statement sesuai urutan kolom schema, tanpa boxing untuk kolom primitif.
+     */
+    public void bind(PreparedStatement statement, int row) throws SQLException {
+        for (int i = 0; i < schema.size(); i++) {
+            int index = i + 1;
+            if (nulls[i].get(row)) {
+                statement.setNull(index, schema.sqlTypes[i]);
+                continue;
+            }
+            switch (schema.kinds[i]) {
+                case LONG:
+                    statement.setLong(index, longs[i].get(row));
+                    break;
+                case DOUBLE:
+                    statement.setDouble(index, doubles[i].get(row));
+                    break;
+                case BOOLEAN:
+                    statement.setBoolean(index, booleans[i][row]);
+                    break;
+                default:
+                    statement.setObject(index, objects[i][row]);
+                    break;
+            }
+        }
+    }
+
+    // Nilai sebagai object (boxing), untuk jalur yang tidak per baris seperti CSV COPY atau watermark
+    public Object get(int row, int column) {
+        if (nulls[column].get(row)) {
+            return null;
+        }
+        switch (schema.kinds[column]) {
+            case LONG:
+                return longs[column].get(row);
+            case DOUBLE:
+                return doubles[column].get(row);
+            case BOOLEAN:
+                return booleans[column][row];
+            default:
+                return objects[column][row];
+        }
+    }
+
+    public boolean isNull(int row, int column) {
+        return nulls[column].get(row);
+    }
+
+    public Map<String, Object> rowAsMap(int row) {
+        Map<String, Object> values = new LinkedHashMap<>();
+        for (int i = 0; i < schema.size(); i++) {
+            values.put(schema.names[i], get(row, i));
+        }
+        return values;
+    }
+
+    public Schema schema() {
+        return schema;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    private void allocate(int newCapacity) {
+        boolean offHeap = newCapacity >= OFF_HEAP_THRESHOLD_ROWS;
+        for (int i = 0; i < schema.size(); i++) {
+            switch (schema.kinds[i]) {
+                case LONG:
+                    LongBuffer longVector = offHeap
+                            ? ByteBuffer.allocateDirect(newCapacity * Long.BYTES).order(ByteOrder.nativeOrder()).asLongBuffer()
+                            : LongBuffer.allocate(newCapacity);
+                    if (longs[i] != null) {
+                        longVector.put(longs[i].duplicate().position(0).limit(size)).clear();
+                    }
+                    longs[i] = longVector;
+                    break;
+                case DOUBLE:
+                    DoubleBuffer doubleVector = offHeap
+                            ? ByteBuffer.allocateDirect(newCapacity * Double.BYTES).order(ByteOrder.nativeOrder()).asDoubleBuffer()
+                            : DoubleBuffer.allocate(newCapacity);
+                    if (doubles[i] != null) {
+                        doubleVector.put(doubles[i].duplicate().position(0).limit(size)).clear();
+                    }
+                    doubles[i] = doubleVector;
+                    break;
+                case BOOLEAN:
+                    booleans[i] = booleans[i] == null ? new boolean[newCapacity] : Arrays.copyOf(booleans[i], newCapacity);
+                    break;
+                default:
+                    objects[i] = objects[i] == null ? new Object[newCapacity] : Arrays.copyOf(objects[i], newCapacity);
+                    break;
+            }
+        }
+        capacity = newCapacity;
+    }
+}
@@ -1,13 +1,20 @@
 package com.uncal.bpm_backend.service;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.time.Duration;
+import java.time.Instant;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.HexFormat;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.json.JSONArray;
 import org.json.JSONObject;
@@ -32,9 +39,58 @@ public class ScenarioEngineService {
     private final ComponentExecutorService componentExecutor;
     private final TaskScheduler taskScheduler;
     private final ExecutionLogService executionLogService;
+    private final DirectoryWatchService directoryWatchService;
+    private final ScenarioRunDispatcher runDispatcher;
     
-    private final Map<Long, Boolean> runningScenarios = new ConcurrentHashMap<>();
+    // Scenario yang sedang berjalan beserta plan aktifnya; sumber kebenaran run/stop selama aplikasi hidup
+    private final Map<Long, ScenarioState> scenarioStates = new ConcurrentHashMap<>();
     private final Map<Long, ScheduledFuture<?>> scheduledTasks = new ConcurrentHashMap<>();
+    private final Map<Long, ScenarioTrigger> scenarioTriggers = new ConcurrentHashMap<>();
+    
+    private static final int DEFAULT_RESCAN_INTERVAL = 300;
+    
+    /**
+     * State in-memory satu scenario yang dijalankan. Tick membaca flag running dan plan dari sini, bukan dari
+     * snapshot File: stop berlaku langsung, dan canvas yang disimpan dipublikasikan sebagai plan versi baru
+     * yang dipakai mulai tick berikutnya tanpa membaca ulang database.
+     */
+    private static class ScenarioState {
+        private final Long fileId;
+        private final String name;
+        private volatile boolean running = true;
+        private volatile ScenarioPlan plan;
+        // Interval polling + setting trigger Sender; jika berubah, jadwal trigger dibuat ulang
+        private volatile String scheduleSignature;
+        
+        private ScenarioState(Long fileId, String name) {
+            this.fileId = fileId;
+            this.name = name;
+        }
+    }
+    
+    // State trigger per scenario: event yang datang saat scenario sedang jalan digabung jadi satu run berikutnya
+    private static class ScenarioTrigger {
+        private final AtomicBoolean executing = new AtomicBoolean(false);
+        private final AtomicBoolean pending = new AtomicBoolean(false);
+    }
+    
+    // State satu eksekusi scenario; step berikutnya dilanjutkan setelah retry component selesai,
+    // tanpa menahan thread scheduler selama jeda retry
+    private static class ScenarioRun {
+        private final ScenarioState state;
+        private final List<ScenarioPlan.Step> steps;
+        private final ExecutionContext context;
+        private final String executionId = UUID.randomUUID().toString();
+        private final CompletableFuture<Void> completion = new CompletableFuture<>();
+        private Long logId;
+        private boolean logCreated;
+        
+        private ScenarioRun(ScenarioState state, List<ScenarioPlan.Step> steps, ExecutionContext context) {
+            this.state = state;
+            this.steps = steps;
+            this.context = context;
+        }
+    }
 
     @Transactional
     public void runScenario(Long fileId, User currentUser) {
@@ -63,8 +119,18 @@ public class ScenarioEngineService {
             
             log.info("✅ Run status updated to: {}", savedFile.getRunStatus());
             
-            runningScenarios.put(fileId, true);
-            startScheduledExecution(file);
+            ScenarioState state = new ScenarioState(fileId, file.getName());
+            String canvas = savedFile.getCanvasData();
+            state.plan = compilePlan(fileId, 1, canvas, hashCanvas(canvas));
+            state.scheduleSignature = scheduleSignature(parseCanvasData(canvas));
+            
+            // Run ulang scenario yang masih jalan: jadwal lama dihentikan dulu agar tidak dobel
+            ScenarioState previous = scenarioStates.put(fileId, state);
+            if (previous != null) {
+                previous.running = false;
+                stopScheduledExecution(fileId);
+            }
+            startScheduledExecution(state);
             
             log.info("🎯 Scenario {} STARTED successfully", file.getName());
             
@@ -80,6 +146,14 @@ public class ScenarioEngineService {
             log.info("🛑 STOP SCENARIO - File ID: {}, User: {}", 
                     fileId, currentUser != null ? currentUser.getUsername() : "null");
             
+            // Flag in-memory dimatikan lebih dulu: run yang sedang jalan berhenti di step/retry berikutnya
+            ScenarioState state = scenarioStates.remove(fileId);
+            if (state != null) {
+                synchronized (state) {
+                    state.running = false;
+                }
+            }
+            
             File file = fileRepository.findById(fileId)
                     .orElseThrow(() -> new RuntimeException("File not found"));
             
@@ -88,7 +162,6 @@ public class ScenarioEngineService {
             fileRepository.save(file);
             
             stopScheduledExecution(fileId);
-            runningScenarios.remove(fileId);
             
             log.info("🎯 Scenario {} STOPPED successfully", file.getName());
             
@@ -114,40 +187,133 @@ public class ScenarioEngineService {
         }
     }
 
-    private void startScheduledExecution(File file) {
+    private void startScheduledExecution(ScenarioState state) {
         try {
-            log.info("⏰ Starting scheduled execution for: {}", file.getName());
+            log.info("⏰ Starting scheduled execution for: {}", state.name);
             
-            if (file.getCanvasData() == null || file.getCanvasData().trim().isEmpty()) {
-                log.warn("⚠️ Canvas data is empty for file: {}, will execute once", file.getName());
-                executeScenario(file);
+            String canvas = state.plan.canvasData();
+            if (canvas == null || canvas.trim().isEmpty()) {
+                log.warn("⚠️ Canvas data is empty for file: {}, will execute once", state.name);
+                executeScenario(state);
                 return;
             }
             
-            JSONObject canvasData = parseCanvasData(file.getCanvasData());
+            JSONObject canvasData = parseCanvasData(canvas);
             Integer pollingInterval = extractPollingInterval(canvasData);
             
+            JSONObject senderConfig = extractSenderConfig(canvasData);
+            if (senderConfig != null && "watch".equalsIgnoreCase(senderConfig.optString("triggerMode", "poll"))
+                    && startWatchTriggeredExecution(state, senderConfig)) {
+                return;
+            }
+            
             log.info("🔄 Scheduling execution with interval: {} seconds", pollingInterval);
             
             ScheduledFuture<?> future = taskScheduler.scheduleWithFixedDelay(
-                () -> executeScenario(file),
+                () -> pollScenario(state),
                 Duration.ofSeconds(pollingInterval != null ? pollingInterval : 60)
             );
             
-            scheduledTasks.put(file.getId(), future);
+            scheduledTasks.put(state.fileId, future);
             
             log.info("✅ Scheduled execution started for scenario: {} (interval: {}s)", 
-                    file.getName(), pollingInterval);
+                    state.name, pollingInterval);
             
         } catch (Exception e) {
             log.error("❌ Failed to start scheduled execution for scenario {}: {}", 
-                     file.getName(), e.getMessage());
+                     state.name, e.getMessage());
             log.info("🔄 Falling back to immediate execution");
-            executeScenario(file);
+            executeScenario(state);
+        }
+    }
+
+    // ✅ Mode watch: scenario dipicu oleh WatchService, rescan berkala hanya sebagai safety net
+    private boolean startWatchTriggeredExecution(ScenarioState state, JSONObject senderConfig) {
+        String directory = senderConfig.optString("directory", "");
+        String filePattern = senderConfig.optString("filePattern", "*");
+        int rescanInterval = senderConfig.optInt("rescanInterval", DEFAULT_RESCAN_INTERVAL);
+        
+        if (directory.isEmpty()) {
+            log.warn("⚠️ Watch trigger requires a Sender directory, falling back to polling");
+            return false;
+        }
+        
+        boolean watching = directoryWatchService.register(state.fileId, directory, filePattern, 
+                () -> triggerScenario(state));
+        if (!watching) {
+            log.warn("⚠️ Could not watch directory {}, falling back to polling", directory);
+            return false;
+        }
+        
+        ScheduledFuture<?> future = taskScheduler.scheduleWithFixedDelay(
+            () -> triggerScenario(state),
+            Duration.ofSeconds(rescanInterval)
+        );
+        
+        scheduledTasks.put(state.fileId, future);
+        
+        log.info("✅ Watch-triggered execution started for scenario: {} (safety rescan: {}s)", 
+                state.name, rescanInterval);
+        return true;
+    }
+    
+    private void triggerScenario(ScenarioState state) {
+        ScenarioTrigger trigger = scenarioTriggers.computeIfAbsent(state.fileId, id -> new ScenarioTrigger());
+        trigger.pending.set(true);
+        
+        if (trigger.executing.compareAndSet(false, true)) {
+            taskScheduler.schedule(() -> drainTriggers(state, trigger), Instant.now());
+        }
+    }
+    
+    // Tick polling dilewati selama run sebelumnya masih berjalan atau menunggu retry (batas per scenario)
+    private void pollScenario(ScenarioState state) {
+        runDispatcher.dispatch(state.fileId, state.name, () -> executeScenario(state));
+    }
+    
+    private void drainTriggers(ScenarioState state, ScenarioTrigger trigger) {
+        try {
+            while (trigger.pending.getAndSet(false)) {
+                CompletableFuture<Void> run = runDispatcher.dispatch(state.fileId, state.name, 
+                        () -> executeScenario(state));
+                if (!run.isDone()) {
+                    // Run masih berjalan (virtual thread/retry): drain dilanjutkan setelah run selesai
+                    run.whenComplete((ignored, error) -> drainTriggers(state, trigger));
+                    return;
+                }
+            }
+        } catch (Exception e) {
+            log.error("❌ Error draining triggers for scenario {}: {}", state.name, e.getMessage());
+        }
+        trigger.executing.set(false);
+        
+        // Event yang masuk tepat setelah loop selesai tidak boleh hilang
+        if (trigger.pending.get() && trigger.executing.compareAndSet(false, true)) {
+            taskScheduler.schedule(() -> drainTriggers(state, trigger), Instant.now());
+        }
+    }
+
+    // File yang belum stabil tidak memicu event lagi (watch) dan tidak perlu menunggu tick polling berikutnya,
+    // jadi pengecekan ulang dijadwalkan sesuai sisa quiet period. Dipanggil setelah run selesai supaya
+    // trigger tidak dilewati karena run ini masih memegang slot scenario.
+    private void scheduleStabilityRecheck(ScenarioState state, ExecutionContext context) {
+        if (context.contains("stabilityRecheckMs") && state.running && scheduledTasks.containsKey(state.fileId)) {
+            long delay = context.get("stabilityRecheckMs", Long.class);
+            log.debug("⏳ Rechecking unstable files for scenario {} in {}ms", state.name, delay);
+            taskScheduler.schedule(() -> triggerScenario(state), Instant.now().plusMillis(delay));
         }
     }
 
     private void stopScheduledExecution(Long fileId) {
+        cancelTriggers(fileId);
+        runDispatcher.forget(fileId);
+    }
+    
+    // Menghentikan jadwal polling/watch scenario tanpa menyentuh state run-nya
+    private void cancelTriggers(Long fileId) {
+        directoryWatchService.unregister(fileId);
+        scenarioTriggers.remove(fileId);
+        
         try {
             ScheduledFuture<?> future = scheduledTasks.get(fileId);
             if (future != null) {
@@ -162,164 +328,301 @@ public class ScenarioEngineService {
         }
     }
 
-    private void executeScenario(File file) {
-        Long scenarioId = file.getId();
-        String scenarioName = file.getName();
-        
-        Integer currentRunStatus = file.getRunStatus();
-        boolean shouldRun = currentRunStatus != null && currentRunStatus == 1;
+    /**
+     * Menjalankan satu eksekusi scenario. Future selesai setelah semua component selesai, termasuk
+     * component yang retry-nya dijadwalkan ulang di TaskScheduler. Plan versi terbaru dibaca sekali di awal
+     * run; canvas yang dipublikasikan di tengah run baru dipakai run berikutnya.
+     */
+    private CompletableFuture<Void> executeScenario(ScenarioState state) {
+        Long scenarioId = state.fileId;
+        String scenarioName = state.name;
         
-        if (!shouldRun) {
-            log.debug("⏸️ Scenario {} is stopped (run_status: {}), skipping execution", 
-                     scenarioName, currentRunStatus);
-            
-            if (runningScenarios.getOrDefault(scenarioId, false)) {
-                runningScenarios.remove(scenarioId);
-                stopScheduledExecution(scenarioId);
-            }
-            return;
+        if (!state.running) {
+            log.debug("⏸️ Scenario {} is stopped, skipping execution", scenarioName);
+            return CompletableFuture.completedFuture(null);
         }
         
-        runningScenarios.put(scenarioId, true);
-        
-        // ✅ Declare variables outside try block for proper scope
-        String executionId = UUID.randomUUID().toString();
-        Long logId = null;
-        boolean logCreated = false;
+        ScenarioRun run = null;
         
         try {
-            log.info("🔄 Starting FILE TRANSFER scenario: {} (run_status: {})", 
-                    scenarioName, currentRunStatus);
+            ScenarioPlan plan = state.plan;
+            log.info("🔄 Starting FILE TRANSFER scenario: {} (plan v{})", scenarioName, plan.version());
             
-            JSONObject canvasData = parseCanvasData(file.getCanvasData());
-            List<ComponentExecutionData> components = extractExecutionComponents(canvasData);
+            List<ScenarioPlan.Step> steps = plan.steps();
             
-            if (components.isEmpty()) {
+            if (steps.isEmpty()) {
                 log.warn("⚠️ No executable components found in scenario: {}", scenarioName);
-                return;
+                return CompletableFuture.completedFuture(null);
             }
             
-            boolean hasSender = components.stream().anyMatch(c -> "Sender".equals(c.getType()));
-            boolean hasReceiver = components.stream().anyMatch(c -> "Receiver".equals(c.getType()));
-            
-            if (!hasSender || !hasReceiver) {
+            if (!plan.isValid()) {
                 log.error("❌ Invalid scenario: Must have both Sender and Receiver components");
-                return;
+                return CompletableFuture.completedFuture(null);
             }
             
-            ExecutionContext context = new ExecutionContext();
+            run = new ScenarioRun(state, steps, new ExecutionContext());
+            ExecutionContext context = run.context;
+            // Retry component juga berhenti begitu scenario di-stop
+            context.setActiveCheck(() -> state.running);
             context.put("scenarioId", scenarioId);
             context.put("scenarioName", scenarioName);
             context.put("executionTime", LocalDateTime.now());
-            context.put("executionId", executionId);
+            context.put("executionId", run.executionId);
             
-            log.info("📋 Executing {} components for file transfer", components.size());
+            log.info("📋 Executing {} components for file transfer", steps.size());
             
-            boolean overallSuccess = true;
+            executeStep(run, 0);
             
-            for (int i = 0; i < components.size(); i++) {
-                ComponentExecutionData componentData = components.get(i);
-                
-                log.info("⚡ [{}/{}] Executing: {} - {}", 
-                        i + 1, components.size(), componentData.getType(), componentData.getLabel());
+        } catch (Exception e) {
+            if (run == null) {
+                log.error("❌ Error executing file transfer scenario {}: {}", scenarioName, e.getMessage(), e);
+                return CompletableFuture.completedFuture(null);
+            }
+            failRun(run, e);
+        }
+        return run.completion;
+    }
+    
+    private void executeStep(ScenarioRun run, int index) {
+        if (!run.state.running) {
+            abortRun(run);
+            return;
+        }
+        if (index >= run.steps.size()) {
+            finishRun(run, true);
+            return;
+        }
+        
+        ComponentExecutionData componentData = run.steps.get(index).component();
+        ExecutionContext context = run.context;
+        
+        log.info("⚡ [{}/{}] Executing: {} - {}", 
+                index + 1, run.steps.size(), componentData.getType(), componentData.getLabel());
+        
+        // ✅ PERBAIKAN: Pass seluruh config data ke context untuk processedAction
+        if ("Sender".equals(componentData.getType())) {
+            String processedAction = componentData.getConfigData().optString("processedAction", "remove");
+            String renameTo = componentData.getConfigData().optString("renameTo", "");
+            String moveTo = componentData.getConfigData().optString("moveTo", "");
+            
+            log.info("🔧 Sender config - processedAction: {}, renameTo: {}, moveTo: {}", 
+                    processedAction, renameTo, moveTo);
+            
+            // Simpan di context untuk digunakan Receiver
+            context.put("processedAction", processedAction);
+            context.put("renameTo", renameTo);
+            context.put("moveTo", moveTo);
+        }
+        
+        // ✅ Retry component berjalan sebagai continuation di TaskScheduler; step berikutnya
+        // dilanjutkan di thread yang menyelesaikan attempt terakhir
+        componentExecutor.executeComponentWithRetry(componentData, run.steps.get(index).handler(), context)
+                .whenComplete((componentSuccess, error) -> {
+                    try {
+                        if (!run.state.running) {
+                            abortRun(run);
+                        } else if (handleStepResult(run, componentData, Boolean.TRUE.equals(componentSuccess))) {
+                            executeStep(run, index + 1);
+                        }
+                    } catch (Exception e) {
+                        failRun(run, e);
+                    }
+                });
+    }
+    
+    // Mengembalikan true jika step berikutnya boleh dijalankan; selain itu run sudah diselesaikan di sini
+    private boolean handleStepResult(ScenarioRun run, ComponentExecutionData componentData, boolean componentSuccess) {
+        ExecutionContext context = run.context;
+        
+        if (componentSuccess) {
+            // ✅ Create execution log when Sender successfully processes data
+            if ("Sender".equals(componentData.getType()) && !run.logCreated) {
+                boolean hasData = false;
+                String senderType = "";
                 
-                // ✅ PERBAIKAN: Pass seluruh config data ke context untuk processedAction
-                if ("Sender".equals(componentData.getType())) {
-                    String processedAction = componentData.getConfigData().optString("processedAction", "remove");
-                    String renameTo = componentData.getConfigData().optString("renameTo", "");
-                    String moveTo = componentData.getConfigData().optString("moveTo", "");
-                    
-                    log.info("🔧 Sender config - processedAction: {}, renameTo: {}, moveTo: {}", 
-                            processedAction, renameTo, moveTo);
-                    
-                    // Simpan di context untuk digunakan Receiver
-                    context.put("processedAction", processedAction);
-                    context.put("renameTo", renameTo);
-                    context.put("moveTo", moveTo);
+                // Check for File Sender (has fileName)
+                if (context.contains("fileName")) {
+                    hasData = true;
+                    senderType = "File";
+                    String fileName = context.get("fileName", String.class);
+                    Long fileSize = context.get("fileSize", Long.class);
+                    log.info("📄 File Sender found file: {} ({} bytes)", fileName, fileSize);
                 }
-                
-                // ✅ PERBAIKAN: Gunakan executeComponentWithRetry untuk retry mechanism
-                boolean componentSuccess = componentExecutor.executeComponentWithRetry(componentData, context);
-                
-                if (componentSuccess) {
-                    // ✅ Create execution log when Sender successfully processes data
-                    if ("Sender".equals(componentData.getType()) && !logCreated) {
-                        boolean hasData = false;
-                        String senderType = "";
-                        
-                        // Check for File Sender (has fileName)
-                        if (context.contains("fileName")) {
-                            hasData = true;
-                            senderType = "File";
-                            String fileName = context.get("fileName", String.class);
-                            Long fileSize = context.get("fileSize", Long.class);
-                            log.info("📄 File Sender found file: {} ({} bytes)", fileName, fileSize);
-                        }
-                        // Check for JDBC Sender (has recordCount > 0)
-                        else if (context.contains("recordCount")) {
-                            Integer recordCount = context.get("recordCount", Integer.class);
-                            if (recordCount != null && recordCount > 0) {
-                                hasData = true;
-                                senderType = "JDBC";
-                                log.info("🗄️ JDBC Sender found {} records", recordCount);
-                            }
-                        }
-                        
-                        // Only create log if data was found
-                        if (hasData) {
-                            ExecutionLog executionLog = executionLogService.startExecution(scenarioId, executionId);
-                            logId = executionLog != null ? executionLog.getId() : null;
-                            logCreated = true;
-                            
-                            if (logId != null) {
-                                executionLogService.updateComponentsExecuted(logId, components.size());
-                            }
-                            
-                            log.info("📝 Execution log created for {} Sender", senderType);
-                        }
+                // Check for File Sender in batch mode (has fileBatch)
+                else if (context.contains("fileBatch")) {
+                    hasData = true;
+                    senderType = "File";
+                    log.info("📄 File Sender claimed batch of {} files", context.get("fileCount", Integer.class));
+                }
+                // Check for JDBC Sender (has recordCount > 0)
+                else if (context.contains("recordCount")) {
+                    Integer recordCount = context.get("recordCount", Integer.class);
+                    if (recordCount != null && recordCount > 0) {
+                        hasData = true;
+                        senderType = "JDBC";
+                        log.info("🗄️ JDBC Sender found {} records", recordCount);
                     }
+                }
+                
+                // Only create log if data was found
+                if (hasData) {
+                    ExecutionLog executionLog = executionLogService.startExecution(run.state.fileId, run.executionId);
+                    run.logId = executionLog != null ? executionLog.getId() : null;
+                    run.logCreated = true;
                     
-                    if ("Receiver".equals(componentData.getType()) && context.contains("outputFile")) {
-                        String outputFile = context.get("outputFile", String.class);
-                        log.info("📤 File delivered by Receiver: {}", outputFile);
+                    if (run.logId != null) {
+                        executionLogService.updateComponentsExecuted(run.logId, run.steps.size());
                     }
                     
-                } else {
-                    log.error("❌ Component execution failed: {} - {}", 
-                             componentData.getType(), componentData.getLabel());
-                    
-                    // Only mark as failed if log was created (data was found but processing failed)
-                    if (logCreated) {
-                        overallSuccess = false;
-                        break;
-                    } else {
-                        // No data found, don't create log, just skip this iteration
-                        log.debug("⏭️ Skipping execution log - no data found to process");
-                        return;
-                    }
+                    log.info("📝 Execution log created for {} Sender", senderType);
                 }
             }
             
+            if ("Receiver".equals(componentData.getType()) && context.contains("outputFile")) {
+                String outputFile = context.get("outputFile", String.class);
+                log.info("📤 File delivered by Receiver: {}", outputFile);
+            }
+            return true;
+        }
+        
+        log.error("❌ Component execution failed: {} - {}", 
+                 componentData.getType(), componentData.getLabel());
+        
+        // Only mark as failed if log was created (data was found but processing failed)
+        if (run.logCreated) {
+            finishRun(run, false);
+        } else {
+            // No data found, don't create log, just skip this iteration
+            log.debug("⏭️ Skipping execution log - no data found to process");
+            releaseRun(run);
+        }
+        return false;
+    }
+    
+    private void finishRun(ScenarioRun run, boolean overallSuccess) {
+        try {
             // ✅ Complete execution log only if it was created
-            if (logCreated && logId != null) {
-                executionLogService.completeExecution(logId, overallSuccess, context);
+            if (run.logCreated && run.logId != null) {
+                executionLogService.completeExecution(run.logId, overallSuccess, run.context);
             }
             
             if (overallSuccess) {
-                String successMessage = buildSuccessMessage(context);
+                run.context.runSuccessCallbacks();
+                String successMessage = buildSuccessMessage(run.context);
                 log.info("🎉 File transfer completed successfully: {}", successMessage);
             } else {
-                log.error("💥 File transfer failed: {}", scenarioName);
+                log.error("💥 File transfer failed: {}", run.state.name);
             }
-            
         } catch (Exception e) {
-            log.error("❌ Error executing file transfer scenario {}: {}", scenarioName, e.getMessage(), e);
+            failRun(run, e);
+            return;
+        }
+        releaseRun(run);
+    }
+    
+    private void failRun(ScenarioRun run, Exception e) {
+        if (run.completion.isDone()) {
+            return;
+        }
+        try {
+            log.error("❌ Error executing file transfer scenario {}: {}", run.state.name, e.getMessage(), e);
             // ✅ Complete execution log with error only if it was created
-            if (logCreated && logId != null) {
+            if (run.logCreated && run.logId != null) {
                 ExecutionContext errorContext = new ExecutionContext();
                 errorContext.put("lastError", e.getMessage());
-                executionLogService.completeExecution(logId, false, errorContext);
+                executionLogService.completeExecution(run.logId, false, errorContext);
+            }
+        } finally {
+            releaseRun(run);
+        }
+    }
+    
+    // Scenario di-stop di tengah run: step sisanya tidak dijalankan dan callback sukses tidak dipanggil
+    private void abortRun(ScenarioRun run) {
+        try {
+            log.info("🛑 Scenario {} stopped, aborting current run", run.state.name);
+            if (run.logCreated && run.logId != null) {
+                ExecutionContext errorContext = new ExecutionContext();
+                errorContext.put("lastError", "Scenario stopped during execution");
+                executionLogService.completeExecution(run.logId, false, errorContext);
+            }
+        } catch (Exception e) {
+            log.error("❌ Error completing execution log for stopped scenario {}: {}", run.state.name, e.getMessage());
+        } finally {
+            releaseRun(run);
+        }
+    }
+    
+    private void releaseRun(ScenarioRun run) {
+        // Cursor/koneksi yang dibuka component (mis. JDBC Sender mode stream) selalu dilepas
+        run.context.closeResources();
+        run.completion.complete(null);
+        scheduleStabilityRecheck(run.state, run.context);
+    }
+    
+    /**
+     * Mempublikasikan canvas yang baru disimpan sebagai plan versi berikutnya untuk scenario yang sedang
+     * berjalan. Tick berikutnya langsung memakai plan ini tanpa stop/start dan tanpa membaca ulang database;
+     * jika interval polling atau setting trigger Sender berubah, jadwal trigger dibuat ulang.
+     */
+    public void publishCanvas(Long fileId, String canvasData) {
+        ScenarioState state = scenarioStates.get(fileId);
+        if (state == null || !state.running) {
+            // Scenario tidak berjalan; plan dikompilasi saat scenario di-run
+            return;
+        }
+        
+        synchronized (state) {
+            ScenarioPlan current = state.plan;
+            String canvasHash = hashCanvas(canvasData);
+            if (current != null && current.canvasHash().equals(canvasHash)) {
+                return;
+            }
+            
+            long version = current != null ? current.version() + 1 : 1;
+            state.plan = compilePlan(fileId, version, canvasData, canvasHash);
+            log.info("🔁 Published plan v{} for running scenario {}", version, state.name);
+            
+            String signature = scheduleSignature(parseCanvasData(canvasData));
+            if (!signature.equals(state.scheduleSignature) && state.running) {
+                log.info("⏰ Trigger settings changed for scenario {}, rescheduling", state.name);
+                state.scheduleSignature = signature;
+                cancelTriggers(fileId);
+                startScheduledExecution(state);
+            }
+        }
+    }
+    
+    private ScenarioPlan compilePlan(Long fileId, long version, String canvas, String canvasHash) {
+        List<ScenarioPlan.Step> steps = new ArrayList<>();
+        
+        for (ComponentExecutionData component : extractExecutionComponents(parseCanvasData(canvas))) {
+            ComponentHandler handler = componentExecutor.resolveHandler(component);
+            if (handler != null) {
+                try {
+                    component.setCompiledConfig(handler.compileConfig(component.getConfigData()));
+                } catch (Exception e) {
+                    // Config tidak valid tetap dilaporkan handler saat eksekusi, seperti sebelumnya
+                    log.warn("⚠️ Could not precompile config for {}: {}", component.getLabel(), e.getMessage());
+                }
             }
+            steps.add(new ScenarioPlan.Step(component, handler));
+        }
+        
+        boolean hasSender = steps.stream().anyMatch(step -> "Sender".equals(step.component().getType()));
+        boolean hasReceiver = steps.stream().anyMatch(step -> "Receiver".equals(step.component().getType()));
+        
+        log.info("🧩 Compiled execution plan v{} for scenario {} ({} components)", version, fileId, steps.size());
+        return new ScenarioPlan(fileId, version, canvasHash, canvas, List.copyOf(steps), hasSender, hasReceiver);
+    }
+    
+    private String hashCanvas(String canvas) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] bytes = (canvas != null ? canvas : "").getBytes(StandardCharsets.UTF_8);
+            return HexFormat.of().formatHex(digest.digest(bytes));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
         }
     }
     
@@ -333,6 +636,9 @@ public class ScenarioEngineService {
             
             message.append(String.format("'%s' (%d bytes) → '%s'", 
                 sourceFile, fileSize, outputFile));
+        } else if (context.contains("fileBatch") && context.contains("filesTransferred")) {
+            message.append(String.format("%d files → '%s'", 
+                context.get("filesTransferred", Integer.class), context.get("outputDirectory", String.class)));
         } else {
             message.append("Files transferred successfully");
         }
@@ -375,6 +681,7 @@ public class ScenarioEngineService {
         try {
             String type = componentJson.getString("type");
             String label = componentJson.optString("label", "");
+            String subtype = componentJson.optString("subtype", "");
             
             JSONObject configData = new JSONObject();
             
@@ -388,6 +695,7 @@ public class ScenarioEngineService {
             
             return ComponentExecutionData.builder()
                     .type(type)
+                    .subtype(subtype)
                     .label(label)
                     .configData(configData)
                     .rawComponentJson(componentJson)
@@ -400,7 +708,7 @@ public class ScenarioEngineService {
     }
 
     private boolean isExecutableComponent(String type) {
-        return type.equals("Sender") || type.equals("Receiver");
+        return type.equals("Sender") || type.equals("Receiver") || type.equals("Processor");
     }
 
     private Integer extractPollingInterval(JSONObject canvasData) {
@@ -424,6 +732,32 @@ public class ScenarioEngineService {
         }
     }
 
+    // Bagian canvas yang menentukan jadwal trigger (bukan isi step)
+    private String scheduleSignature(JSONObject canvasData) {
+        JSONObject senderConfig = extractSenderConfig(canvasData);
+        if (senderConfig == null) {
+            return String.valueOf(extractPollingInterval(canvasData));
+        }
+        return String.join("|", String.valueOf(extractPollingInterval(canvasData)),
+                senderConfig.optString("triggerMode", "poll"),
+                senderConfig.optString("directory", ""),
+                senderConfig.optString("filePattern", "*"),
+                String.valueOf(senderConfig.optInt("rescanInterval", DEFAULT_RESCAN_INTERVAL)));
+    }
+
+    private JSONObject extractSenderConfig(JSONObject canvasData) {
+        try {
+            for (ComponentExecutionData component : extractExecutionComponents(canvasData)) {
+                if ("Sender".equals(component.getType())) {
+                    return component.getConfigData();
+                }
+            }
+        } catch (Exception e) {
+            log.warn("Error extracting Sender config: {}", e.getMessage());
+        }
+        return null;
+    }
+
     @Transactional
     public void ensureRunStatusExists(Long fileId) {
         try {
@@ -456,8 +790,11 @@ public class ScenarioEngineService {
                 debugInfo.put("projectId", file.getProject() != null ? file.getProject().getId() : "null");
                 debugInfo.put("hasCanvasData", file.getCanvasData() != null && !file.getCanvasData().isEmpty());
                 debugInfo.put("canvasDataContainsRunStatus", file.getCanvasData() != null && file.getCanvasData().contains("runStatus"));
-                debugInfo.put("isRunningInMemory", runningScenarios.getOrDefault(fileId, false));
+                ScenarioState state = scenarioStates.get(fileId);
+                debugInfo.put("isRunningInMemory", state != null && state.running);
+                debugInfo.put("planVersion", state != null && state.plan != null ? state.plan.version() : null);
                 debugInfo.put("hasScheduledTask", scheduledTasks.containsKey(fileId));
+                debugInfo.put("isWatchTriggered", directoryWatchService.isRegistered(fileId));
                 
                 // ✅ PERBAIKAN: Tambah info polling interval
                 if (file.getCanvasData() != null) {
@@ -0,0 +1,18 @@
+package com.uncal.bpm_backend.service;
+
+import java.util.List;
+
+/**
+ * Hasil kompilasi canvas scenario: component executable beserta handler dan config yang sudah di-parse.
+ * Versi naik setiap canvas scenario yang sedang berjalan disimpan; hash SHA-256 mencegah kompilasi ulang
+ * jika isi canvas tidak berubah.
+ */
+public record ScenarioPlan(Long fileId, long version, String canvasHash, String canvasData, List<Step> steps,
+                           boolean hasSender, boolean hasReceiver) {
+
+    public record Step(ComponentExecutionData component, ComponentHandler handler) {}
+
+    public boolean isValid() {
+        return hasSender && hasReceiver;
+    }
+}
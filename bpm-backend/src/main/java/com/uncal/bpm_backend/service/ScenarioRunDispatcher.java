@@ -0,0 +1,132 @@
+package com.uncal.bpm_backend.service;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.stereotype.Service;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Menjalankan run scenario yang dipicu scheduler (tick polling, event watch).
+ * Mode "scheduler": run dijalankan langsung di thread scenario-engine, jadi jumlah run paralel
+ * dibatasi ukuran pool. Mode "virtual": scheduler hanya memicu, setiap run berjalan di virtual thread
+ * sendiri dan dibatasi semaphore global; I/O file/JDBC yang blocking tidak lagi menahan thread platform.
+ * Di kedua mode jumlah run paralel per scenario dibatasi semaphore per scenario.
+ */
+@Service
+@Slf4j
+public class ScenarioRunDispatcher {
+
+    public static final String MODE_SCHEDULER = "scheduler";
+    public static final String MODE_VIRTUAL = "virtual";
+
+    private final TaskExecutor scenarioRunExecutor;
+    private final boolean virtualThreads;
+    private final int maxRunsPerScenario;
+    // Permit dipegang sampai run selesai, termasuk selama menunggu retry component
+    private final Semaphore globalRunPermits;
+    private final Map<Long, Semaphore> scenarioRunPermits = new ConcurrentHashMap<>();
+
+    public ScenarioRunDispatcher(@Qualifier("scenarioRunExecutor") TaskExecutor scenarioRunExecutor,
+                                 @Value("${bpm.engine.execution-mode:scheduler}") String executionMode,
+                                 @Value("${bpm.engine.max-concurrent-runs:200}") int maxConcurrentRuns,
+                                 @Value("${bpm.engine.max-runs-per-scenario:1}") int maxRunsPerScenario) {
+        this.scenarioRunExecutor = scenarioRunExecutor;
+        this.virtualThreads = MODE_VIRTUAL.equalsIgnoreCase(executionMode.trim());
+        this.maxRunsPerScenario = Math.max(1, maxRunsPerScenario);
+        this.globalRunPermits = new Semaphore(Math.max(1, maxConcurrentRuns), true);
+
+        if (!virtualThreads && !MODE_SCHEDULER.equalsIgnoreCase(executionMode.trim())) {
+            log.warn("⚠️ Unknown bpm.engine.execution-mode '{}', using '{}'", executionMode, MODE_SCHEDULER);
+        }
+        log.info("⚙️ Scenario execution mode: {} (max runs: {}, per scenario: {})",
+                virtualThreads ? MODE_VIRTUAL : MODE_SCHEDULER,
+                virtualThreads ? maxConcurrentRuns : "pool size", this.maxRunsPerScenario);
+    }
+
+    public boolean isVirtualThreads() {
+        return virtualThreads;
+    }
+
+    /**
+     * Memulai satu run scenario. Trigger dilewati (future langsung selesai) jika scenario sudah mencapai
+     * batas run paralelnya. Future yang dikembalikan selesai saat run selesai.
+     */
+    public CompletableFuture<Void> dispatch(Long scenarioId, String scenarioName,
+                                            Supplier<CompletableFuture<Void>> run) {
+        Semaphore scenarioPermits = scenarioRunPermits.computeIfAbsent(scenarioId,
+                id -> new Semaphore(maxRunsPerScenario));
+        if (!scenarioPermits.tryAcquire()) {
+            log.debug("⏳ Scenario {} already has {} run(s) in progress, skipping trigger",
+                    scenarioName, maxRunsPerScenario);
+            return CompletableFuture.completedFuture(null);
+        }
+
+        if (!virtualThreads) {
+            return start(scenarioName, run, scenarioPermits, null);
+        }
+
+        CompletableFuture<Void> completion = new CompletableFuture<>();
+        try {
+            scenarioRunExecutor.execute(() -> {
+                try {
+                    // Menunggu permit global di virtual thread murah, thread scheduler tidak ikut tertahan
+                    globalRunPermits.acquire();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    scenarioPermits.release();
+                    completion.complete(null);
+                    return;
+                }
+                start(scenarioName, run, scenarioPermits, globalRunPermits)
+                        .whenComplete((ignored, error) -> completion.complete(null));
+            });
+        } catch (RuntimeException e) {
+            log.error("❌ Could not start run of scenario {}: {}", scenarioName, e.getMessage());
+            scenarioPermits.release();
+            completion.complete(null);
+        }
+        return completion;
+    }
+
+    /**
+     * Menjalankan continuation run (mis. attempt retry yang dijadwalkan TaskScheduler). Pada mode virtual
+     * continuation dipindah ke virtual thread supaya I/O component tidak berjalan di thread scheduler.
+     */
+    public void resume(Runnable continuation) {
+        if (virtualThreads) {
+            scenarioRunExecutor.execute(continuation);
+        } else {
+            continuation.run();
+        }
+    }
+
+    // Scenario di-stop: permit per scenario tidak perlu disimpan lagi
+    public void forget(Long scenarioId) {
+        scenarioRunPermits.remove(scenarioId);
+    }
+
+    private CompletableFuture<Void> start(String scenarioName, Supplier<CompletableFuture<Void>> run,
+                                          Semaphore scenarioPermits, Semaphore globalPermits) {
+        CompletableFuture<Void> result;
+        try {
+            result = run.get();
+        } catch (RuntimeException e) {
+            log.error("❌ Run of scenario {} failed to start: {}", scenarioName, e.getMessage(), e);
+            result = CompletableFuture.completedFuture(null);
+        }
+        return result.whenComplete((ignored, error) -> {
+            scenarioPermits.release();
+            if (globalPermits != null) {
+                globalPermits.release();
+            }
+        });
+    }
+}
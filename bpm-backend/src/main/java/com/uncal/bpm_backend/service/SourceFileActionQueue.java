@@ -0,0 +1,230 @@
+package com.uncal.bpm_backend.service;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.uncal.bpm_backend.model.SourceFileAction;
+import com.uncal.bpm_backend.repository.SourceFileActionRepository;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Antrian async untuk post-processing file sumber. Entry disimpan dulu ke database, lalu dikerjakan
+ * worker pool sendiri; action yang gagal dicoba ulang dengan exponential backoff tanpa memblok scheduler.
+ * Setiap entry di-claim atomik di database (status RUNNING dengan lease) sebelum dikerjakan, dan file sumber
+ * dicek terhadap fingerprint ledger supaya file yang sudah diganti tidak ikut dihapus/dipindah.
+ */
+@Service
+@Slf4j
+public class SourceFileActionQueue {
+
+    private static final int MAX_ATTEMPTS = 10;
+    private static final long BASE_BACKOFF_MS = 1000;
+    private static final long MAX_BACKOFF_MS = 10 * 60 * 1000;
+    private static final int POLL_BATCH_SIZE = 100;
+    private static final long CLAIM_LEASE_MS = 10 * 60 * 1000;
+
+    private final SourceFileActionRepository sourceFileActionRepository;
+    private final SourceFileProcessor sourceFileProcessor;
+    private final ProcessedFileLedger processedFileLedger;
+    private final TaskExecutor sourceActionExecutor;
+
+    // Entry yang sedang dikerjakan worker, supaya poller tidak mengirim entry yang sama dua kali
+    private final Set<Long> inProgress = ConcurrentHashMap.newKeySet();
+
+    public SourceFileActionQueue(SourceFileActionRepository sourceFileActionRepository,
+                                 SourceFileProcessor sourceFileProcessor,
+                                 ProcessedFileLedger processedFileLedger,
+                                 @Qualifier("sourceActionExecutor") TaskExecutor sourceActionExecutor) {
+        this.sourceFileActionRepository = sourceFileActionRepository;
+        this.sourceFileProcessor = sourceFileProcessor;
+        this.processedFileLedger = processedFileLedger;
+        this.sourceActionExecutor = sourceActionExecutor;
+    }
+
+    /**
+     * Menyimpan action ke antrian dan langsung menyerahkannya ke worker.
+     * Mengembalikan false jika antrian tidak bisa disimpan, sehingga pemanggil bisa memproses inline.
+     */
+    public boolean enqueue(String sourceFilePath, String processedAction, String originalFileName,
+                           String renameTo, String moveTo, String sourceDirectory, String sourceFingerprint) {
+        SourceFileAction action = new SourceFileAction();
+        action.setSourcePath(sourceFilePath);
+        action.setOriginalFileName(originalFileName);
+        action.setAction(processedAction);
+        action.setRenameTo(renameTo);
+        action.setMoveTo(moveTo);
+        action.setSourceDirectory(sourceDirectory);
+        action.setSourceFingerprint(sourceFingerprint == null || sourceFingerprint.isEmpty() ? null : sourceFingerprint);
+
+        try {
+            action = sourceFileActionRepository.save(action);
+        } catch (Exception e) {
+            log.error("❌ Failed to queue source file action for {}: {}", sourceFilePath, e.getMessage());
+            return false;
+        }
+
+        log.info("📮 Queued source file action '{}' for: {}", processedAction, originalFileName);
+        dispatch(action);
+        return true;
+    }
+
+    // Mengambil entry yang sudah jatuh tempo: retry setelah backoff dan entry yang tertinggal sebelum restart
+    @Scheduled(fixedDelay = 5000)
+    public void pollDueActions() {
+        List<SourceFileAction> due;
+        try {
+            due = sourceFileActionRepository.findDue(LocalDateTime.now(), PageRequest.of(0, POLL_BATCH_SIZE));
+        } catch (Exception e) {
+            log.error("❌ Failed to poll source file action queue: {}", e.getMessage());
+            return;
+        }
+
+        for (SourceFileAction action : due) {
+            dispatch(action);
+        }
+    }
+
+    public long getPendingCount() {
+        return sourceFileActionRepository.countByStatus("PENDING");
+    }
+
+    private void dispatch(SourceFileAction action) {
+        if (!inProgress.add(action.getId())) {
+            return;
+        }
+        try {
+            sourceActionExecutor.execute(() -> run(action));
+        } catch (TaskRejectedException e) {
+            // Worker penuh - entry tetap di database dan diambil lagi oleh poller
+            inProgress.remove(action.getId());
+            log.debug("⏳ Source action worker busy, deferring: {}", action.getOriginalFileName());
+        }
+    }
+
+    private void run(SourceFileAction action) {
+        Long id = action.getId();
+        try {
+            LocalDateTime now = LocalDateTime.now();
+            if (sourceFileActionRepository.claim(id, now, now.plusNanos(CLAIM_LEASE_MS * 1_000_000)) == 0) {
+                log.debug("⏭️ Source file action {} already claimed or finished", id);
+                return;
+            }
+
+            if (sourceChanged(action)) {
+                log.warn("⚠️ Source file changed since transfer, skipping action '{}': {}",
+                        action.getAction(), action.getSourcePath());
+                finish(id, "SKIPPED", "Source file changed since transfer");
+                return;
+            }
+
+            boolean success = sourceFileProcessor.processSourceFile(
+                    action.getSourcePath(),
+                    action.getAction(),
+                    action.getOriginalFileName(),
+                    action.getRenameTo(),
+                    action.getMoveTo(),
+                    action.getSourceDirectory(),
+                    1);
+
+            if (success) {
+                sourceFileActionRepository.deleteById(id);
+                log.info("🎯 Source file action '{}' completed: {}", action.getAction(), action.getOriginalFileName());
+            } else {
+                scheduleRetry(id, "Source file action returned failure");
+            }
+        } catch (Exception e) {
+            scheduleRetry(id, e.getMessage());
+        } finally {
+            inProgress.remove(id);
+        }
+    }
+
+    // File yang hilang diserahkan ke SourceFileProcessor; hanya file yang ukuran/mtime-nya berubah yang dilewati
+    private boolean sourceChanged(SourceFileAction action) throws Exception {
+        if (action.getSourceFingerprint() == null) {
+            return false;
+        }
+        Path source = Paths.get(action.getSourcePath());
+        if (!Files.exists(source)) {
+            return false;
+        }
+        BasicFileAttributes attributes = Files.readAttributes(source, BasicFileAttributes.class);
+        String current = processedFileLedger.fingerprint(source, attributes.size(), attributes.lastModifiedTime().toMillis());
+        return !current.equals(action.getSourceFingerprint());
+    }
+
+    private void scheduleRetry(Long id, String error) {
+        SourceFileAction action = reloadClaimed(id);
+        if (action == null) {
+            return;
+        }
+
+        int attempts = action.getAttempts() + 1;
+        action.setAttempts(attempts);
+        action.setLastError(truncate(error));
+
+        if (attempts >= MAX_ATTEMPTS) {
+            action.setStatus("FAILED");
+            log.error("❌ Source file action '{}' FAILED after {} attempts: {}",
+                    action.getAction(), attempts, action.getSourcePath());
+        } else {
+            long backoff = Math.min(MAX_BACKOFF_MS, BASE_BACKOFF_MS << (attempts - 1));
+            action.setStatus("PENDING");
+            action.setNextAttemptAt(LocalDateTime.now().plusNanos(backoff * 1_000_000));
+            log.warn("⚠️ Source file action '{}' failed (attempt {}), retrying in {}ms: {}",
+                    action.getAction(), attempts, backoff, action.getSourcePath());
+        }
+        save(action);
+    }
+
+    private void finish(Long id, String status, String reason) {
+        SourceFileAction action = reloadClaimed(id);
+        if (action == null) {
+            return;
+        }
+        action.setStatus(status);
+        action.setLastError(truncate(reason));
+        save(action);
+    }
+
+    // Dibaca ulang dari database: salinan lama tidak boleh menghidupkan lagi entry yang sudah selesai
+    private SourceFileAction reloadClaimed(Long id) {
+        try {
+            SourceFileAction action = sourceFileActionRepository.findById(id).orElse(null);
+            if (action == null || !"RUNNING".equals(action.getStatus())) {
+                log.debug("⏭️ Source file action {} no longer claimed, not updating", id);
+                return null;
+            }
+            return action;
+        } catch (Exception e) {
+            log.error("❌ Failed to reload source file action {}: {}", id, e.getMessage());
+            return null;
+        }
+    }
+
+    private void save(SourceFileAction action) {
+        try {
+            sourceFileActionRepository.save(action);
+        } catch (Exception e) {
+            log.error("❌ Failed to update source file action {}: {}", action.getId(), e.getMessage());
+        }
+    }
+
+    private String truncate(String error) {
+        return error != null && error.length() > 1000 ? error.substring(0, 1000) : error;
+    }
+}
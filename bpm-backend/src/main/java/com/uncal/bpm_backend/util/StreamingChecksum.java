@@ -0,0 +1,88 @@
+package com.uncal.bpm_backend.util;
+
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.zip.CRC32C;
+
+/**
+ * Checksum yang dihitung sambil byte mengalir saat transfer (tanpa membaca file dua kali).
+ * Mendukung CRC32C (cepat, akselerasi hardware) dan SHA-256.
+ */
+public class StreamingChecksum {
+
+    public static final String CRC32C = "CRC32C";
+    public static final String SHA256 = "SHA-256";
+    public static final String NONE = "NONE";
+
+    private final String algorithm;
+    private final CRC32C crc;
+    private final MessageDigest digest;
+
+    private StreamingChecksum(String algorithm, CRC32C crc, MessageDigest digest) {
+        this.algorithm = algorithm;
+        this.crc = crc;
+        this.digest = digest;
+    }
+
+    /**
+     * Membuat checksum untuk algoritma yang diminta; null jika algoritma "NONE".
+     */
+    public static StreamingChecksum of(String algorithm) {
+        String normalized = normalize(algorithm);
+        if (NONE.equals(normalized)) {
+            return null;
+        }
+        if (SHA256.equals(normalized)) {
+            try {
+                return new StreamingChecksum(SHA256, null, MessageDigest.getInstance(SHA256));
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException("SHA-256 not available", e);
+            }
+        }
+        return new StreamingChecksum(CRC32C, new CRC32C(), null);
+    }
+
+    public static String normalize(String algorithm) {
+        if (algorithm == null) {
+            return CRC32C;
+        }
+        String upper = algorithm.trim().toUpperCase();
+        if (upper.equals("NONE") || upper.equals("OFF") || upper.equals("FALSE")) {
+            return NONE;
+        }
+        if (upper.equals("SHA-256") || upper.equals("SHA256")) {
+            return SHA256;
+        }
+        return CRC32C;
+    }
+
+    // Posisi buffer milik pemanggil tidak diubah
+    public void update(ByteBuffer buffer) {
+        if (crc != null) {
+            crc.update(buffer.duplicate());
+        } else {
+            digest.update(buffer.duplicate());
+        }
+    }
+
+    public void update(byte[] bytes, int offset, int length) {
+        if (crc != null) {
+            crc.update(bytes, offset, length);
+        } else {
+            digest.update(bytes, offset, length);
+        }
+    }
+
+    public String getAlgorithm() {
+        return algorithm;
+    }
+
+    public String hex() {
+        if (crc != null) {
+            return String.format("%08x", crc.getValue());
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+}
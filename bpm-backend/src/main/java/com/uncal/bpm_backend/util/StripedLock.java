@@ -0,0 +1,34 @@
+package com.uncal.bpm_backend.util;
+
+import java.nio.file.Path;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Lock striping berdasarkan path yang sudah dinormalisasi.
+ * Path yang sama selalu mendapat lock yang sama, sedangkan path yang berbeda
+ * hampir selalu jatuh ke stripe berbeda sehingga bisa berjalan paralel.
+ * Memakai ReentrantLock (bukan monitor synchronized) supaya virtual thread yang menunggu
+ * atau melakukan I/O sambil memegang lock tidak mem-pin carrier thread.
+ */
+public class StripedLock {
+
+    private final ReentrantLock[] stripes;
+    private final int mask;
+
+    public StripedLock(int stripeCount) {
+        int size = Integer.highestOneBit(Math.max(1, stripeCount - 1)) << 1;
+        this.stripes = new ReentrantLock[size];
+        this.mask = size - 1;
+        for (int i = 0; i < size; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+    }
+
+    public ReentrantLock get(Path path) {
+        Path normalized = path.toAbsolutePath().normalize();
+        int hash = normalized.hashCode();
+        // Sebar bit atas ke bawah supaya path dengan prefix sama tidak menumpuk di satu stripe
+        hash ^= (hash >>> 16);
+        return stripes[hash & mask];
+    }
+}
@@ -0,0 +1,89 @@
+package com.uncal.bpm_backend.service;
+
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.attribute.FileTime;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Benchmark manual untuk DirectoryScanner dibandingkan scan lama (Files.list + sort penuh).
+ * Bukan bagian dari test suite; jalankan langsung, misalnya:
+ * java -cp target/classes:target/test-classes:... com.uncal.bpm_backend.service.DirectoryScannerBenchmark 1000 10000 100000
+ */
+public class DirectoryScannerBenchmark {
+
+    private static final int LIMIT = 33;
+    private static final int ROUNDS = 5;
+
+    public static void main(String[] args) throws IOException {
+        int[] sizes = args.length > 0
+                ? Stream.of(args).mapToInt(Integer::parseInt).toArray()
+                : new int[] { 1_000, 10_000, 100_000 };
+
+        PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:*.txt");
+
+        System.out.printf("%10s %14s %14s%n", "entries", "legacy (ms)", "scanner (ms)");
+        for (int size : sizes) {
+            Path dir = createInbox(size);
+            try {
+                // Warm-up supaya JIT dan page cache tidak mempengaruhi hasil
+                legacyScan(dir, matcher);
+                DirectoryScanner.scanOldest(dir, matcher, LIMIT, file -> true);
+
+                long legacy = 0;
+                long scanner = 0;
+                for (int i = 0; i < ROUNDS; i++) {
+                    long start = System.nanoTime();
+                    legacyScan(dir, matcher);
+                    legacy += System.nanoTime() - start;
+
+                    start = System.nanoTime();
+                    DirectoryScanner.scanOldest(dir, matcher, LIMIT, file -> true);
+                    scanner += System.nanoTime() - start;
+                }
+
+                System.out.printf("%10d %14.1f %14.1f%n", size,
+                        legacy / ROUNDS / 1_000_000.0, scanner / ROUNDS / 1_000_000.0);
+            } finally {
+                deleteInbox(dir);
+            }
+        }
+    }
+
+    // Implementasi lama: lastModified dibaca berulang kali di dalam comparator
+    private static List<java.io.File> legacyScan(Path dir, PathMatcher matcher) throws IOException {
+        try (Stream<Path> paths = Files.list(dir)) {
+            return paths
+                    .filter(Files::isRegularFile)
+                    .filter(path -> matcher.matches(path.getFileName()))
+                    .map(Path::toFile)
+                    .sorted(Comparator.comparing(java.io.File::lastModified))
+                    .collect(Collectors.toList());
+        }
+    }
+
+    private static Path createInbox(int size) throws IOException {
+        Path dir = Files.createTempDirectory("scanner-bench-");
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < size; i++) {
+            Path file = Files.createFile(dir.resolve("file-" + i + ".txt"));
+            Files.setLastModifiedTime(file, FileTime.fromMillis(now - (i * 7919L % size) * 1000));
+        }
+        return dir;
+    }
+
+    private static void deleteInbox(Path dir) throws IOException {
+        try (Stream<Path> paths = Files.list(dir)) {
+            for (Path path : (Iterable<Path>) paths::iterator) {
+                Files.delete(path);
+            }
+        }
+        Files.delete(dir);
+    }
+}
@@ -0,0 +1,56 @@
+package com.uncal.bpm_backend.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import org.junit.jupiter.api.Test;
+
+class FileStabilityTrackerTest {
+
+    private static final long QUIET_MS = 200;
+
+    private final FileStabilityTracker tracker = new FileStabilityTracker();
+    private final Path file = Paths.get("inbox/report.csv");
+
+    @Test
+    void firstObservationIsNeverReady() {
+        // mtime lama (mis. hasil cp -p) tidak membuat file langsung dianggap stabil
+        assertEquals(QUIET_MS, tracker.remainingQuietTime(file, 100, 0L, QUIET_MS));
+    }
+
+    @Test
+    void disabledQuietPeriodIsReadyImmediately() {
+        assertEquals(0, tracker.remainingQuietTime(file, 100, 1_000L, 0));
+    }
+
+    @Test
+    void unchangedFileBecomesReadyAfterQuietPeriod() throws InterruptedException {
+        tracker.remainingQuietTime(file, 100, 1_000L, QUIET_MS);
+        assertTrue(tracker.remainingQuietTime(file, 100, 1_000L, QUIET_MS) > 0);
+
+        Thread.sleep(QUIET_MS + 50);
+        assertEquals(0, tracker.remainingQuietTime(file, 100, 1_000L, QUIET_MS));
+    }
+
+    @Test
+    void growingFileRestartsQuietPeriod() throws InterruptedException {
+        tracker.remainingQuietTime(file, 100, 1_000L, QUIET_MS);
+        Thread.sleep(QUIET_MS + 50);
+
+        long remaining = tracker.remainingQuietTime(file, 200, 1_000L, QUIET_MS);
+        assertTrue(remaining > QUIET_MS - 50, "remaining: " + remaining);
+    }
+
+    @Test
+    void forgottenFileStartsOver() throws InterruptedException {
+        tracker.remainingQuietTime(file, 100, 1_000L, QUIET_MS);
+        Thread.sleep(QUIET_MS + 50);
+
+        // Path yang sama dalam bentuk lain tetap dianggap file yang sama
+        tracker.forget(file.toAbsolutePath());
+        assertEquals(QUIET_MS, tracker.remainingQuietTime(file, 100, 1_000L, QUIET_MS));
+    }
+}
@@ -0,0 +1,78 @@
+package com.uncal.bpm_backend.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * SQL upsert per dialect: urutan parameter harus sama dengan urutan kolom RowBatch.
+ */
+class JdbcReceiverHandlerUpsertTest {
+
+    private static final List<String> COLUMNS = List.of("id", "name", "amount");
+    private static final List<String> KEYS = List.of("id");
+
+    private final JdbcReceiverHandler handler = new JdbcReceiverHandler(mock(JdbcConnectionPoolRegistry.class));
+
+    @Test
+    void postgresqlUsesOnConflictWithExcluded() {
+        assertEquals("INSERT INTO public.orders (id, name, amount) VALUES (?, ?, ?)"
+                        + " ON CONFLICT (id) DO UPDATE SET name = EXCLUDED.name, amount = EXCLUDED.amount",
+                handler.buildUpsertQuery("postgresql", "orders", "public", COLUMNS, KEYS));
+    }
+
+    @Test
+    void postgresqlWithOnlyKeyColumnsDoesNothing() {
+        assertEquals("INSERT INTO orders (id) VALUES (?) ON CONFLICT (id) DO NOTHING",
+                handler.buildUpsertQuery("POSTGRESQL", "orders", "", List.of("id"), KEYS));
+    }
+
+    @Test
+    void mysqlUsesOnDuplicateKeyUpdate() {
+        assertEquals("INSERT INTO orders (id, name, amount) VALUES (?, ?, ?)"
+                        + " ON DUPLICATE KEY UPDATE name = VALUES(name), amount = VALUES(amount)",
+                handler.buildUpsertQuery("MYSQL", "orders", null, COLUMNS, KEYS));
+    }
+
+    @Test
+    void mysqlWithOnlyKeyColumnsAssignsKeyToItself() {
+        assertEquals("INSERT INTO orders (id) VALUES (?) ON DUPLICATE KEY UPDATE id = VALUES(id)",
+                handler.buildUpsertQuery("MYSQL", "orders", null, List.of("id"), KEYS));
+    }
+
+    @Test
+    void mssqlUsesMergeWithValuesSource() {
+        assertEquals("MERGE INTO dbo.orders AS target USING (VALUES (?, ?, ?)) AS source (id, name, amount)"
+                        + " ON target.id = source.id"
+                        + " WHEN MATCHED THEN UPDATE SET target.name = source.name, target.amount = source.amount"
+                        + " WHEN NOT MATCHED THEN INSERT (id, name, amount) VALUES (source.id, source.name, source.amount);",
+                handler.buildUpsertQuery("MSSQL", "orders", "dbo", COLUMNS, KEYS));
+    }
+
+    @Test
+    void oracleUsesMergeFromDualWithCompositeKey() {
+        assertEquals("MERGE INTO orders target USING (SELECT ? id, ? name, ? amount FROM dual) source"
+                        + " ON (target.id = source.id AND target.name = source.name)"
+                        + " WHEN MATCHED THEN UPDATE SET target.amount = source.amount"
+                        + " WHEN NOT MATCHED THEN INSERT (id, name, amount) VALUES (source.id, source.name, source.amount)",
+                handler.buildUpsertQuery("ORACLE", "orders", null, COLUMNS, List.of("id", "name")));
+    }
+
+    @Test
+    void mergeWithOnlyKeyColumnsSkipsMatchedBranch() {
+        assertEquals("MERGE INTO orders AS target USING (VALUES (?)) AS source (id)"
+                        + " ON target.id = source.id"
+                        + " WHEN NOT MATCHED THEN INSERT (id) VALUES (source.id);",
+                handler.buildUpsertQuery("MSSQL", "orders", null, List.of("id"), KEYS));
+    }
+
+    @Test
+    void unsupportedDialectIsRejected() {
+        assertThrows(IllegalArgumentException.class,
+                () -> handler.buildUpsertQuery("SQLITE", "orders", null, COLUMNS, KEYS));
+    }
+}
@@ -0,0 +1,168 @@
+package com.uncal.bpm_backend.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import com.uncal.bpm_backend.service.RowBatch.ColumnKind;
+
+class RowBatchTest {
+
+    // id INTEGER, price DOUBLE, active BOOLEAN, name VARCHAR, amount NUMERIC(12,2)
+    private static final String[] NAMES = { "id", "price", "active", "name", "amount" };
+    private static final int[] TYPES = { Types.INTEGER, Types.DOUBLE, Types.BOOLEAN, Types.VARCHAR, Types.NUMERIC };
+    private static final int[] PRECISION = { 10, 15, 1, 255, 12 };
+    private static final int[] SCALE = { 0, 0, 0, 0, 2 };
+
+    private static final Object[][] ROWS = {
+        { 1L, 9.5, true, "alpha", new BigDecimal("10.25") },
+        { null, null, null, null, null },
+        { -7L, 0.0, false, "", new BigDecimal("0.00") },
+    };
+
+    @Test
+    void schemaMapsJdbcTypesToVectorKinds() throws SQLException {
+        RowBatch.Schema schema = RowBatch.Schema.from(metaData(
+                new String[] { "a", "b", "c", "d", "e", "f", "g" },
+                new int[] { Types.BIGINT, Types.NUMERIC, Types.DECIMAL, Types.REAL, Types.BIT, Types.BIT, Types.TIMESTAMP },
+                new int[] { 19, 10, 20, 7, 1, 8, 0 },
+                new int[] { 0, 0, 0, 0, 0, 0, 0 }));
+
+        assertEquals(ColumnKind.LONG, schema.kind(0));
+        assertEquals(ColumnKind.LONG, schema.kind(1));
+        // NUMERIC(20,0) tidak muat di long
+        assertEquals(ColumnKind.OBJECT, schema.kind(2));
+        assertEquals(ColumnKind.DOUBLE, schema.kind(3));
+        assertEquals(ColumnKind.BOOLEAN, schema.kind(4));
+        assertEquals(ColumnKind.OBJECT, schema.kind(5));
+        assertEquals(ColumnKind.OBJECT, schema.kind(6));
+    }
+
+    @Test
+    void schemaIndexOfFallsBackToCaseInsensitive() throws SQLException {
+        RowBatch.Schema schema = RowBatch.Schema.from(metaData(NAMES, TYPES, PRECISION, SCALE));
+
+        assertEquals(3, schema.indexOf("name"));
+        assertEquals(3, schema.indexOf("NAME"));
+        assertEquals(-1, schema.indexOf("missing"));
+    }
+
+    @Test
+    void valuesAndNullsRoundTripThroughEveryKind() throws SQLException {
+        RowBatch batch = new RowBatch(RowBatch.Schema.from(metaData(NAMES, TYPES, PRECISION, SCALE)), 1);
+
+        assertFalse(batch.readFrom(resultSet(ROWS), 0));
+        assertEquals(ROWS.length, batch.size());
+
+        for (int row = 0; row < ROWS.length; row++) {
+            for (int column = 0; column < NAMES.length; column++) {
+                assertEquals(ROWS[row][column], batch.get(row, column), "row " + row + ", column " + NAMES[column]);
+                assertEquals(ROWS[row][column] == null, batch.isNull(row, column));
+            }
+        }
+
+        Map<String, Object> first = batch.rowAsMap(0);
+        assertEquals(1L, first.get("id"));
+        assertEquals("alpha", first.get("name"));
+        assertTrue(batch.rowAsMap(1).values().stream().allMatch(value -> value == null));
+    }
+
+    @Test
+    void primitiveZeroIsNotMistakenForNull() throws SQLException {
+        RowBatch batch = new RowBatch(RowBatch.Schema.from(metaData(NAMES, TYPES, PRECISION, SCALE)));
+        batch.readFrom(resultSet(ROWS), 0);
+
+        assertFalse(batch.isNull(2, 1));
+        assertEquals(0.0, batch.get(2, 1));
+        assertEquals(false, batch.get(2, 2));
+    }
+
+    @Test
+    void readFromStopsAtMaxRowsAndContinuesFromCursor() throws SQLException {
+        RowBatch.Schema schema = RowBatch.Schema.from(metaData(NAMES, TYPES, PRECISION, SCALE));
+        ResultSet resultSet = resultSet(ROWS);
+
+        RowBatch firstChunk = new RowBatch(schema);
+        assertTrue(firstChunk.readFrom(resultSet, 2));
+        assertEquals(2, firstChunk.size());
+
+        RowBatch secondChunk = new RowBatch(schema);
+        assertFalse(secondChunk.readFrom(resultSet, 2));
+        assertEquals(1, secondChunk.size());
+        assertEquals(-7L, secondChunk.get(0, 0));
+    }
+
+    @Test
+    void bindUsesPrimitiveSettersAndTypedNulls() throws SQLException {
+        RowBatch batch = new RowBatch(RowBatch.Schema.from(metaData(NAMES, TYPES, PRECISION, SCALE)));
+        batch.readFrom(resultSet(ROWS), 0);
+
+        PreparedStatement statement = mock(PreparedStatement.class);
+        batch.bind(statement, 0);
+        verify(statement).setLong(1, 1L);
+        verify(statement).setDouble(2, 9.5);
+        verify(statement).setBoolean(3, true);
+        verify(statement).setObject(4, "alpha");
+        verify(statement).setObject(5, new BigDecimal("10.25"));
+
+        PreparedStatement nullStatement = mock(PreparedStatement.class);
+        batch.bind(nullStatement, 1);
+        for (int column = 0; column < NAMES.length; column++) {
+            verify(nullStatement).setNull(column + 1, TYPES[column]);
+        }
+    }
+
+    private static ResultSetMetaData metaData(String[] names, int[] types, int[] precision, int[] scale)
+            throws SQLException {
+        ResultSetMetaData metaData = mock(ResultSetMetaData.class);
+        when(metaData.getColumnCount()).thenReturn(names.length);
+        when(metaData.getColumnName(anyInt())).thenAnswer(call -> names[(int) call.getArgument(0) - 1]);
+        when(metaData.getColumnType(anyInt())).thenAnswer(call -> types[(int) call.getArgument(0) - 1]);
+        when(metaData.getPrecision(anyInt())).thenAnswer(call -> precision[(int) call.getArgument(0) - 1]);
+        when(metaData.getScale(anyInt())).thenAnswer(call -> scale[(int) call.getArgument(0) - 1]);
+        return metaData;
+    }
+
+    // ResultSet palsu di atas array baris, mengikuti semantik getXxx + wasNull milik JDBC
+    private static ResultSet resultSet(Object[][] rows) throws SQLException {
+        ResultSet resultSet = mock(ResultSet.class);
+        int[] cursor = { -1 };
+        Object[] last = { null };
+
+        when(resultSet.next()).thenAnswer(call -> ++cursor[0] < rows.length);
+        when(resultSet.wasNull()).thenAnswer(call -> last[0] == null);
+        when(resultSet.getObject(anyInt())).thenAnswer(call -> read(rows, cursor, last, call.getArgument(0)));
+        when(resultSet.getLong(anyInt())).thenAnswer(call -> {
+            Object value = read(rows, cursor, last, call.getArgument(0));
+            return value == null ? 0L : ((Number) value).longValue();
+        });
+        when(resultSet.getDouble(anyInt())).thenAnswer(call -> {
+            Object value = read(rows, cursor, last, call.getArgument(0));
+            return value == null ? 0.0 : ((Number) value).doubleValue();
+        });
+        when(resultSet.getBoolean(anyInt())).thenAnswer(call -> {
+            Object value = read(rows, cursor, last, call.getArgument(0));
+            return value != null && (Boolean) value;
+        });
+        return resultSet;
+    }
+
+    private static Object read(Object[][] rows, int[] cursor, Object[] last, int index) {
+        last[0] = rows[cursor[0]][index - 1];
+        return last[0];
+    }
+}
@@ -0,0 +1,65 @@
+package com.uncal.bpm_backend.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Test;
+
+class StreamingChecksumTest {
+
+    private static final byte[] CHECK_INPUT = "123456789".getBytes(StandardCharsets.US_ASCII);
+
+    @Test
+    void normalizeAcceptsAliases() {
+        assertEquals(StreamingChecksum.CRC32C, StreamingChecksum.normalize(null));
+        assertEquals(StreamingChecksum.CRC32C, StreamingChecksum.normalize(" crc32c "));
+        assertEquals(StreamingChecksum.SHA256, StreamingChecksum.normalize("sha256"));
+        assertEquals(StreamingChecksum.SHA256, StreamingChecksum.normalize("SHA-256"));
+        assertEquals(StreamingChecksum.NONE, StreamingChecksum.normalize("off"));
+        assertEquals(StreamingChecksum.NONE, StreamingChecksum.normalize("false"));
+    }
+
+    @Test
+    void noneHasNoChecksum() {
+        assertNull(StreamingChecksum.of("NONE"));
+    }
+
+    @Test
+    void crc32cMatchesStandardCheckValue() {
+        StreamingChecksum checksum = StreamingChecksum.of(StreamingChecksum.CRC32C);
+        checksum.update(CHECK_INPUT, 0, CHECK_INPUT.length);
+
+        assertEquals("e3069283", checksum.hex());
+    }
+
+    @Test
+    void sha256MatchesKnownDigest() {
+        StreamingChecksum checksum = StreamingChecksum.of(StreamingChecksum.SHA256);
+        checksum.update(CHECK_INPUT, 0, CHECK_INPUT.length);
+
+        assertEquals("15e2b0d3c33891ebb0f1ef609ec419420c20e320ce94c65fbc8c3312448eb225", checksum.hex());
+    }
+
+    @Test
+    void bufferUpdateLeavesPositionAndMatchesArrayUpdate() {
+        for (String algorithm : new String[] { StreamingChecksum.CRC32C, StreamingChecksum.SHA256 }) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(CHECK_INPUT.length);
+            buffer.put(CHECK_INPUT).flip();
+
+            StreamingChecksum fromBuffer = StreamingChecksum.of(algorithm);
+            // Diupdate per dua bagian seperti saat copy per chunk
+            fromBuffer.update(buffer.duplicate().limit(4));
+            fromBuffer.update(buffer.duplicate().position(4));
+            fromBuffer.update(ByteBuffer.allocate(0));
+
+            StreamingChecksum fromArray = StreamingChecksum.of(algorithm);
+            fromArray.update(CHECK_INPUT, 0, CHECK_INPUT.length);
+
+            assertEquals(0, buffer.position());
+            assertEquals(fromArray.hex(), fromBuffer.hex(), algorithm);
+        }
+    }
+}
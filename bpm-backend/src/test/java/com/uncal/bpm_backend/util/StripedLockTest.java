@@ -0,0 +1,38 @@
+package com.uncal.bpm_backend.util;
+
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.junit.jupiter.api.Test;
+
+class StripedLockTest {
+
+    @Test
+    void equivalentPathsShareOneLock() {
+        StripedLock locks = new StripedLock(64);
+        Path absolute = Paths.get("inbox/data.csv").toAbsolutePath();
+
+        assertSame(locks.get(absolute), locks.get(Paths.get("inbox/data.csv")));
+        assertSame(locks.get(absolute), locks.get(Paths.get("inbox/../inbox/./data.csv")));
+    }
+
+    @Test
+    void pathsSpreadOverAtMostStripeCountLocks() {
+        StripedLock locks = new StripedLock(16);
+        Set<ReentrantLock> distinct = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (int i = 0; i < 1000; i++) {
+            distinct.add(locks.get(Paths.get("/data/outbox/file-" + i + ".csv")));
+        }
+
+        assertTrue(distinct.size() <= 16, "stripes used: " + distinct.size());
+        // Path dengan prefix sama tetap tersebar, tidak menumpuk di satu stripe
+        assertTrue(distinct.size() >= 8, "stripes used: " + distinct.size());
+    }
+}